@@ -51,7 +51,17 @@ public class AssetsRoot {
      * @return the file, which may not exist
      */
     public File getIndexPath(VersionManifest versionManifest) {
-        return new File(dir, "indexes/" + versionManifest.getAssetsIndex() + ".json");
+        return getIndexPath(versionManifest.getAssetsIndex());
+    }
+
+    /**
+     * Get the path to the index .json file for an assets index ID.
+     *
+     * @param indexId the index ID
+     * @return the file, which may not exist
+     */
+    public File getIndexPath(String indexId) {
+        return new File(dir, "indexes/" + indexId + ".json");
     }
 
     /**
@@ -7,6 +7,7 @@ package com.skcraft.launcher;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.google.common.base.Strings;
+import com.skcraft.launcher.launch.JavaRuntime;
 import com.skcraft.launcher.launch.JavaRuntimeFinder;
 import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.selfupdate.ComparableVersion;
@@ -15,6 +16,7 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.Map;
 import lombok.Data;
 
 /**
@@ -43,6 +45,18 @@ public class Configuration {
     private int windowWidth = 854;
     private int widowHeight = 480;
     private String gameKey;
+    private int installCacheSize = 2048;
+    private boolean defaultGcFlagsRemoved;
+    private int prefetchSize = 512;
+    private int processNice = 0;
+    private String processIoClass;
+    private int processIoLevel = 4;
+    private String processCpuAffinity;
+    private boolean processCgroup = false;
+    private int processMemoryHighRatio = 150;
+    private int logRateLimit = 20;
+    private Map<String, Integer> logRateLimits;
+    private boolean useMetadataStore = false;
 
     public static void setImplicitExit() {
         javafx.application.Platform.setImplicitExit(false);
@@ -157,32 +171,51 @@ public class Configuration {
         return 16;
     }
 
+    /**
+     * Pick the best Java runtime, unless a working runtime is already
+     * configured. A configured 32-bit runtime is only replaced if a 64-bit
+     * runtime was found.
+     * </p>
+     * The first call starts every runtime that is found to probe it, so
+     * this should be called off the event dispatch thread.
+     */
     public void setupJVMPath() {
+        JavaRuntime best = JavaRuntimeFinder.findBestRuntime();
 
-        String oldJvmPath = jvmPath;
-        File file = JavaRuntimeFinder.findBestJavaPath();
-        if (file != null) {
-            jvmPath = file.getAbsolutePath();
-        } else if (!Strings.isNullOrEmpty(oldJvmPath) && new File(oldJvmPath).exists()) {
-            return;
+        if (!Strings.isNullOrEmpty(jvmPath) && new File(jvmPath).exists()) {
+            JavaRuntime current = JavaRuntimeFinder.getRuntime(new File(jvmPath));
+            if (current != null && (best == null || current.is64Bit() || !best.is64Bit())) {
+                return;
+            }
         }
-        Persistence.commitAndForget(this);
 
+        if (best != null) {
+            jvmPath = best.getBinDir().getAbsolutePath();
+            Persistence.commitAndForget(this);
+        }
     }
 
+    /**
+     * Remove the garbage collector flags that older versions of the launcher
+     * always added. The collector is now picked for each launch (see
+     * {@link com.skcraft.launcher.launch.JvmTuning}), and these flags stop
+     * newer Java versions from starting. This only happens once, so users
+     * can still add the flags back.
+     */
     public void setupJVMargs() {
-        if (Strings.isNullOrEmpty(jvmArgs)) {
-            jvmArgs = "-XX:+UseParNewGC -XX:+UseConcMarkSweepGC";
-        }
-        if (!jvmArgs.contains("-XX:+UseParNewGC")) {
-            jvmArgs += " -XX:+UseParNewGC";
+        if (defaultGcFlagsRemoved) {
             return;
         }
-        if (!jvmArgs.contains("-XX:+UseConcMarkSweepGC")) {
-            jvmArgs += " -XX:+UseConcMarkSweepGC";
-            return;
+
+        if (!Strings.isNullOrEmpty(jvmArgs)) {
+            jvmArgs = jvmArgs.replace("-XX:+UseParNewGC", "")
+                    .replace("-XX:+UseConcMarkSweepGC", "")
+                    .replaceAll("\\s+", " ")
+                    .trim();
         }
 
+        defaultGcFlagsRemoved = true;
+        Persistence.commitAndForget(this);
     }
 
     public static boolean checkJvmPath(File path) {
@@ -121,8 +121,7 @@ public class InstanceList {
             File[] dirs = launcher.getInstancesDir().listFiles((FileFilter) DirectoryFileFilter.INSTANCE);
             if (dirs != null) {
                 for (File dir : dirs) {
-                    File file = new File(dir, "instance.json");
-                    Instance instance = Persistence.load(file, Instance.class);
+                    Instance instance = launcher.getMetadata().loadInstance(dir);
                     instance.setDir(dir);
                     instance.setName(dir.getName());
                     instance.setSelected(true);
@@ -180,8 +179,7 @@ public class InstanceList {
 
                     if (!foundLocal) {
                         File dir = new File(launcher.getInstancesDir(), manifest.getName());
-                        File file = new File(dir, "instance.json");
-                        Instance instance = Persistence.load(file, Instance.class);
+                        Instance instance = launcher.getMetadata().loadInstance(dir);
                         instance.setDir(dir);
                         instance.setTitle(manifest.getTitle());
                         instance.setName(manifest.getName());
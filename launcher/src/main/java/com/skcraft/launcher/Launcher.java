@@ -14,7 +14,10 @@ import com.skcraft.launcher.auth.AccountList;
 import com.skcraft.launcher.auth.LoginService;
 import com.skcraft.launcher.auth.YggdrasilLoginService;
 import com.skcraft.launcher.dialog.LauncherFrame;
+import com.skcraft.launcher.install.TempStoreCleaner;
+import com.skcraft.launcher.launch.InstancePrefetcher;
 import com.skcraft.launcher.launch.LaunchSupervisor;
+import com.skcraft.launcher.launch.NativesCache;
 import com.skcraft.launcher.model.minecraft.VersionManifest;
 import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.swing.SwingHelper;
@@ -54,6 +57,7 @@ import nz.co.lolnet.james137137.CertificateManager;
 import nz.co.lolnet.james137137.FeedbackManager;
 import static nz.co.lolnet.james137137.HelpAndSupport.downloadTextFromUrl;
 import nz.co.lolnet.james137137.LauncherGobalSettings;
+import nz.co.lolnet.james137137.MemoryChecker;
 import nz.co.lolnet.james137137.WebUtil;
 import nz.co.lolnet.statistics.ThreadLauncherIsLaunched;
 import nz.co.lolnet.statistics.MetaData;
@@ -68,6 +72,7 @@ public final class Launcher {
     public static final boolean debugmode = false;
     public static boolean hungerDrive = false;
     public static final int PROTOCOL_VERSION = 2;
+    private static final long NATIVES_MAX_AGE = 1000L * 60 * 60 * 24 * 30;
     public static String modPackURL;
     public static Launcher instance;
     
@@ -82,11 +87,15 @@ public final class Launcher {
     @Getter
     private final Configuration config;
     @Getter
+    private final MetadataStore metadata;
+    @Getter
     private final AccountList accounts;
     @Getter
     private final AssetsRoot assets;
     @Getter
     private final LaunchSupervisor launchSupervisor = new LaunchSupervisor(this);
+    @Getter
+    private final InstancePrefetcher prefetcher = new InstancePrefetcher(this);
     
     public static File dataDir;
     public static File launcherJarFile;
@@ -112,13 +121,13 @@ public final class Launcher {
         this.instances = new InstanceList(this);
         this.assets = new AssetsRoot(new File(baseDir, "assets"));
         this.config = Persistence.load(new File(baseDir, "config.json"), Configuration.class);
-        config.setupJVMPath();
         config.setupJVMargs();
         config.setupMemory();
         config.checkVaules();
         mainServerURL = getProperties().getProperty("mainServerURL");
         backupServerURL = getProperties().getProperty("backupServerURL");
         this.accounts = Persistence.load(new File(baseDir, "accounts.dat"), AccountList.class);
+        this.metadata = MetadataStore.open(new File(baseDir, "metadata.db"), config.isUseMetadataStore());
         
         setDefaultConfig();
         
@@ -133,6 +142,23 @@ public final class Launcher {
             @Override
             public void run() {
                 cleanupExtractDir();
+                cleanupInstallerDir();
+                new NativesCache(getNativesDir()).cleanup(NATIVES_MAX_AGE);
+            }
+        });
+
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                MemoryChecker.refreshIfStale();
+            }
+        });
+
+        // Starting every runtime to probe it takes seconds, so the configured runtime is used until then
+        executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                config.setupJVMPath();
             }
         });
     }
@@ -323,6 +349,16 @@ public final class Launcher {
         }
     }
 
+    /**
+     * Trim the temporary install directory to the configured size.
+     */
+    public void cleanupInstallerDir() {
+        log.info("Cleaning up temporary install files directory...");
+
+        long maxSize = Math.max(0, config.getInstallCacheSize()) * 1024L * 1024L;
+        new TempStoreCleaner(getInstallerDir(), maxSize).run();
+    }
+
     /**
      * Create a new temporary directory to extract files to.
      *
@@ -335,6 +371,15 @@ public final class Launcher {
         return dir;
     }
 
+    /**
+     * Get the directory to store cached extracted native libraries.
+     *
+     * @return the natives directory
+     */
+    public File getNativesDir() {
+        return new File(getCommonDataDir(), "natives");
+    }
+
     /**
      * Get the directory to store the launcher binaries.
      *
@@ -388,7 +433,17 @@ public final class Launcher {
      * @return the path
      */
     public File getJarPath(VersionManifest versionManifest) {
-        return new File(getVersionDir(versionManifest.getId()), versionManifest.getId() + ".jar");
+        return getJarPath(versionManifest.getId());
+    }
+
+    /**
+     * Get the path to the JAR for the given version ID.
+     *
+     * @param versionId the version ID
+     * @return the path
+     */
+    public File getJarPath(String versionId) {
+        return new File(getVersionDir(versionId), versionId + ".jar");
     }
 
     /**
@@ -10,6 +10,8 @@ import com.google.common.io.Closer;
 import lombok.extern.java.Log;
 
 import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.List;
@@ -81,6 +83,31 @@ public final class LauncherUtils {
 
 
 
+    /**
+     * Get the process ID of a process, which Java 8 only exposes through its
+     * internal process class.
+     *
+     * @param process the process
+     * @return the process ID, or -1 if it is not available
+     */
+    public static int getProcessId(Process process) {
+        try {
+            Method method = Process.class.getMethod("pid");
+            return ((Long) method.invoke(process)).intValue();
+        } catch (NoSuchMethodException ignored) {
+        } catch (Exception e) {
+            return -1;
+        }
+
+        try {
+            Field field = process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
     public static void interruptibleDelete(File file, List<File> failures) throws IOException, InterruptedException {
         checkInterrupted();
 
@@ -0,0 +1,407 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.io.Files;
+import com.skcraft.launcher.install.FeatureCache;
+import com.skcraft.launcher.install.InstallLog;
+import com.skcraft.launcher.install.UpdateCache;
+import com.skcraft.launcher.persistence.Persistence;
+import com.skcraft.launcher.persistence.RecordStore;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.logging.Level;
+
+/**
+ * Loads and saves the state that the launcher keeps for each instance: the
+ * instance itself, its install log, its update cache and its selected
+ * features.
+ * </p>
+ * By default, the state is kept in JSON files in the directory of each
+ * instance. If enabled, it is instead kept as records in a single
+ * {@link RecordStore} in the base directory, where the install log is split
+ * into one record per group so that only changed groups are written. The
+ * JSON files of an instance are imported into the store the first time the
+ * instance is loaded, and are not written to afterwards.
+ * </p>
+ * So that there is only ever one copy of the state to trust, the store is
+ * never silently replaced by the JSON files: if it is enabled but can't be
+ * opened, such as when another launcher has it open, opening fails. When
+ * the store is disabled again, the records of each instance are written
+ * back to its JSON files and removed from the store as the instance is
+ * loaded, and the store file is deleted once it is empty.
+ */
+@Log
+public class MetadataStore implements Closeable {
+
+    private static final String INSTANCE_FILE = "instance.json";
+    private static final String INSTALL_LOG_FILE = "install_log.json";
+    private static final String UPDATE_CACHE_FILE = "update_cache.json";
+    private static final String FEATURES_FILE = "features.json";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final RecordStore store;
+    private RecordStore previousStore;
+
+    private MetadataStore(RecordStore store, RecordStore previousStore) {
+        this.store = store;
+        this.previousStore = previousStore;
+    }
+
+    /**
+     * Open the metadata store.
+     *
+     * @param file the file of the record store
+     * @param enabled true to use the record store, false to use JSON files
+     * @return the metadata store
+     * @throws IOException if the record store exists or is enabled, but could
+     *         not be opened, such as when another launcher is using it
+     */
+    public static MetadataStore open(@NonNull File file, boolean enabled) throws IOException {
+        if (enabled) {
+            file.getParentFile().mkdirs();
+            return new MetadataStore(new RecordStore(file), null);
+        } else if (file.exists()) {
+            // Its records are moved back to the JSON files as instances are loaded
+            return new MetadataStore(null, new RecordStore(file));
+        } else {
+            return new MetadataStore(null, null);
+        }
+    }
+
+    /**
+     * Check whether the state is kept in the record store.
+     *
+     * @return true if the record store is used
+     */
+    public boolean isRecordStore() {
+        return store != null;
+    }
+
+    /**
+     * Load an instance and bind it so that it can be saved with
+     * {@link Persistence#commit(Object)}.
+     *
+     * @param dir the directory of the instance
+     * @return the instance
+     */
+    public Instance loadInstance(@NonNull File dir) {
+        File file = new File(dir, INSTANCE_FILE);
+        if (store == null) {
+            if (previousStore != null) {
+                try {
+                    exportFiles(dir);
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to export the metadata of " + dir.getName() + " to JSON files", e);
+                }
+            }
+            return Persistence.load(file, Instance.class);
+        }
+
+        String key = getPrefix(dir) + "instance";
+        if (!store.contains(key) && file.exists()) {
+            try {
+                importFiles(dir);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to import the metadata of " + dir.getName() + "; using " + file.getName(), e);
+                return Persistence.load(file, Instance.class);
+            }
+        }
+
+        return Persistence.load(store.asByteSource(key), store.asByteSink(key), Instance.class, false);
+    }
+
+    /**
+     * Read the install log of the last update of an instance.
+     *
+     * @param instance the instance
+     * @return the install log, which is empty if there is none
+     */
+    public InstallLog readInstallLog(@NonNull Instance instance) {
+        if (store == null) {
+            return Persistence.read(new File(instance.getDir(), INSTALL_LOG_FILE), InstallLog.class);
+        }
+
+        try {
+            return readInstallLog(store, instance.getDir());
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to read the install log of " + instance.getName(), e);
+            return new InstallLog();
+        }
+    }
+
+    private InstallLog readInstallLog(RecordStore store, File dir) throws IOException {
+        Map<String, Set<String>> entries = new HashMap<String, Set<String>>();
+        String prefix = getInstallLogPrefix(dir);
+        for (String key : store.keys(prefix)) {
+            byte[] value = store.get(key);
+            if (value != null) {
+                entries.put(key.substring(prefix.length()),
+                        new HashSet<String>(Arrays.asList(mapper.readValue(value, String[].class))));
+            }
+        }
+
+        InstallLog installLog = new InstallLog();
+        installLog.setEntries(entries);
+        return installLog;
+    }
+
+    /**
+     * Save the install log of an instance. With the record store, only the
+     * groups that changed since the last save are written.
+     *
+     * @param instance the instance
+     * @param installLog the install log
+     * @throws IOException on I/O error
+     */
+    public void writeInstallLog(@NonNull Instance instance, @NonNull InstallLog installLog) throws IOException {
+        if (store == null) {
+            Persistence.write(new File(instance.getDir(), INSTALL_LOG_FILE), installLog);
+            return;
+        }
+
+        String prefix = getInstallLogPrefix(instance.getDir());
+        Set<String> removed = new HashSet<String>(store.keys(prefix));
+        Map<String, byte[]> records = new LinkedHashMap<String, byte[]>();
+
+        synchronized (installLog) {
+            for (Map.Entry<String, Set<String>> entry : installLog.getEntrySet()) {
+                String key = prefix + entry.getKey();
+                byte[] value = mapper.writeValueAsBytes(new TreeSet<String>(entry.getValue()));
+                removed.remove(key);
+                if (!Arrays.equals(value, store.get(key))) {
+                    records.put(key, value);
+                }
+            }
+        }
+
+        for (String key : removed) {
+            records.put(key, null);
+        }
+
+        store.putAll(records);
+    }
+
+    /**
+     * Read the update cache of an instance.
+     *
+     * @param instance the instance
+     * @return the update cache, which is empty if there is none
+     */
+    public UpdateCache readUpdateCache(@NonNull Instance instance) {
+        return read(instance.getDir(), UPDATE_CACHE_FILE, "update_cache", UpdateCache.class);
+    }
+
+    /**
+     * Save the update cache of an instance.
+     *
+     * @param instance the instance
+     * @param updateCache the update cache
+     * @throws IOException on I/O error
+     */
+    public void writeUpdateCache(@NonNull Instance instance, @NonNull UpdateCache updateCache) throws IOException {
+        write(instance.getDir(), UPDATE_CACHE_FILE, "update_cache", updateCache);
+    }
+
+    /**
+     * Remove the update cache of an instance, so that every file is
+     * checked on the next update.
+     *
+     * @param instance the instance
+     * @throws IOException on I/O error
+     */
+    public void removeUpdateCache(@NonNull Instance instance) throws IOException {
+        if (store == null) {
+            new File(instance.getDir(), UPDATE_CACHE_FILE).delete();
+        } else {
+            store.remove(getPrefix(instance.getDir()) + "update_cache");
+        }
+    }
+
+    /**
+     * Read the features that were last selected for an instance.
+     *
+     * @param instance the instance
+     * @return the feature cache, which is empty if there is none
+     */
+    public FeatureCache readFeatureCache(@NonNull Instance instance) {
+        return read(instance.getDir(), FEATURES_FILE, "features", FeatureCache.class);
+    }
+
+    /**
+     * Save the features that were selected for an instance.
+     *
+     * @param instance the instance
+     * @param featureCache the feature cache
+     * @throws IOException on I/O error
+     */
+    public void writeFeatureCache(@NonNull Instance instance, @NonNull FeatureCache featureCache) throws IOException {
+        write(instance.getDir(), FEATURES_FILE, "features", featureCache);
+    }
+
+    /**
+     * Remove all records of an instance that has been deleted. Nothing is
+     * done when JSON files are used, because they are deleted with the
+     * directory of the instance.
+     *
+     * @param instance the instance
+     * @throws IOException on I/O error
+     */
+    public void removeInstance(@NonNull Instance instance) throws IOException {
+        if (store != null) {
+            removeRecords(store, instance.getDir());
+        } else {
+            synchronized (this) {
+                if (previousStore != null) {
+                    removeRecords(previousStore, instance.getDir());
+                    closePreviousStoreIfEmpty();
+                }
+            }
+        }
+    }
+
+    private static void removeRecords(RecordStore store, File dir) throws IOException {
+        String instanceKey = getPrefix(dir) + "instance";
+        Map<String, byte[]> records = new LinkedHashMap<String, byte[]>();
+        for (String key : store.keys(getPrefix(dir))) {
+            if (!key.equals(instanceKey)) {
+                records.put(key, null);
+            }
+        }
+        // Removed last, so that a removal that is cut short is done again
+        records.put(instanceKey, null);
+        store.putAll(records);
+    }
+
+    /**
+     * Close the record store, if one is open.
+     *
+     * @throws IOException on I/O error
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (store != null) {
+            store.close();
+        }
+        if (previousStore != null) {
+            previousStore.close();
+            previousStore = null;
+        }
+    }
+
+    private <V> V read(File dir, String fileName, String name, Class<V> cls) {
+        if (store == null) {
+            return Persistence.read(new File(dir, fileName), cls);
+        } else {
+            return Persistence.read(store.asByteSource(getPrefix(dir) + name), cls, false);
+        }
+    }
+
+    private void write(File dir, String fileName, String name, Object object) throws IOException {
+        if (store == null) {
+            Persistence.write(new File(dir, fileName), object);
+        } else {
+            store.put(getPrefix(dir) + name, mapper.writeValueAsBytes(object));
+        }
+    }
+
+    /**
+     * Import the JSON files of an instance into the record store.
+     *
+     * @param dir the directory of the instance
+     * @throws IOException on I/O error
+     */
+    private void importFiles(File dir) throws IOException {
+        String prefix = getPrefix(dir);
+        Map<String, byte[]> records = new LinkedHashMap<String, byte[]>();
+
+        File installLogFile = new File(dir, INSTALL_LOG_FILE);
+        if (installLogFile.exists()) {
+            InstallLog installLog = Persistence.read(installLogFile, InstallLog.class);
+            for (Map.Entry<String, Set<String>> entry : installLog.getEntrySet()) {
+                records.put(getInstallLogPrefix(dir) + entry.getKey(),
+                        mapper.writeValueAsBytes(new TreeSet<String>(entry.getValue())));
+            }
+        }
+
+        importFile(records, new File(dir, UPDATE_CACHE_FILE), prefix + "update_cache");
+        importFile(records, new File(dir, FEATURES_FILE), prefix + "features");
+
+        // The instance record comes last, so that an import that is cut short is done again
+        importFile(records, new File(dir, INSTANCE_FILE), prefix + "instance");
+
+        store.putAll(records);
+        log.info("Imported the metadata of " + dir.getName() + " into " + store.getFile().getAbsolutePath());
+    }
+
+    /**
+     * Write the records of an instance in the store that is no longer used
+     * back to its JSON files, and remove the records.
+     *
+     * @param dir the directory of the instance
+     * @throws IOException on I/O error
+     */
+    private synchronized void exportFiles(File dir) throws IOException {
+        if (previousStore == null) {
+            return;
+        }
+
+        String prefix = getPrefix(dir);
+        byte[] instance = previousStore.get(prefix + "instance");
+        if (instance != null) {
+            Persistence.write(new File(dir, INSTALL_LOG_FILE), readInstallLog(previousStore, dir));
+            exportFile(previousStore.get(prefix + "update_cache"), new File(dir, UPDATE_CACHE_FILE));
+            exportFile(previousStore.get(prefix + "features"), new File(dir, FEATURES_FILE));
+
+            // The instance file comes last, so that an export that is cut short is done again
+            exportFile(instance, new File(dir, INSTANCE_FILE));
+            log.info("Exported the metadata of " + dir.getName() + " from " + previousStore.getFile().getAbsolutePath());
+        }
+
+        removeRecords(previousStore, dir);
+        closePreviousStoreIfEmpty();
+    }
+
+    private void exportFile(byte[] value, File file) throws IOException {
+        if (value != null) {
+            Persistence.write(file, mapper.readTree(value));
+        } else {
+            file.delete();
+        }
+    }
+
+    private synchronized void closePreviousStoreIfEmpty() throws IOException {
+        if (previousStore != null && previousStore.keys("").isEmpty()) {
+            File file = previousStore.getFile();
+            previousStore.close();
+            previousStore = null;
+            file.delete();
+            log.info("Removed " + file.getAbsolutePath() + " because every instance was moved back to JSON files");
+        }
+    }
+
+    private static void importFile(Map<String, byte[]> records, File file, String key) throws IOException {
+        if (file.exists()) {
+            records.put(key, Files.toByteArray(file));
+        }
+    }
+
+    private static String getPrefix(File dir) {
+        return "instances/" + dir.getName() + "/";
+    }
+
+    private static String getInstallLogPrefix(File dir) {
+        return getPrefix(dir) + "install_log/";
+    }
+
+}
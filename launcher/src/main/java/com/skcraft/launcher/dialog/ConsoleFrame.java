@@ -6,10 +6,12 @@
 
 package com.skcraft.launcher.dialog;
 
+import com.skcraft.launcher.Configuration;
 import com.skcraft.launcher.Launcher;
 import com.skcraft.launcher.swing.LinedBoxPanel;
 import com.skcraft.launcher.swing.MessageLog;
 import com.skcraft.launcher.swing.SwingHelper;
+import com.skcraft.launcher.util.LogRateLimiter;
 import com.skcraft.launcher.util.PastebinPoster;
 import com.skcraft.launcher.util.SharedLocale;
 import lombok.Getter;
@@ -37,6 +39,8 @@ public class ConsoleFrame extends JFrame {
     @Getter private final MessageLog messageLog;
     @Getter private LinedBoxPanel buttonsPanel;
 
+    private static final long LOG_RATE_WINDOW = 1000;
+
     private boolean registeredGlobalLog = false;
 
     /**
@@ -102,11 +106,30 @@ public class ConsoleFrame extends JFrame {
      */
     private void registerLoggerHandler() {
         if (!registeredGlobalLog) {
-            getMessageLog().registerLoggerHandler();
+            getMessageLog().registerLoggerHandler(createRateLimiter());
             registeredGlobalLog = true;
         }
     }
 
+    /**
+     * Create a rate limiter for launcher log records from the configuration.
+     *
+     * @return the rate limiter, or null if there is no configuration
+     */
+    private static LogRateLimiter createRateLimiter() {
+        Launcher launcher = Launcher.instance;
+        if (launcher == null) {
+            return null;
+        }
+
+        Configuration config = launcher.getConfig();
+        LogRateLimiter rateLimiter = new LogRateLimiter(config.getLogRateLimit(), LOG_RATE_WINDOW);
+        if (config.getLogRateLimits() != null) {
+            rateLimiter.setLimits(config.getLogRateLimits());
+        }
+        return rateLimiter;
+    }
+
     /**
      * Attempt to perform window close.
      */
@@ -50,6 +50,8 @@ import java.util.Date;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.*;
+import javax.swing.event.ListSelectionEvent;
+import javax.swing.event.ListSelectionListener;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import lombok.NonNull;
@@ -225,6 +227,16 @@ public class LauncherFrame extends JFrame {
             }
         });
 
+        instancesTable.getSelectionModel().addListSelectionListener(new ListSelectionListener() {
+            @Override
+            public void valueChanged(ListSelectionEvent e) {
+                int index = instancesTable.getSelectedRow();
+                if (!e.getValueIsAdjusting() && index >= 0 && index < launcher.getInstances().size()) {
+                    launcher.getPrefetcher().prefetch(launcher.getInstances().get(index));
+                }
+            }
+        });
+
         instancesTable.addKeyListener(new KeyAdapter() {
             public void keyPressed(KeyEvent e) {
                 if (e.getKeyCode() == KeyEvent.VK_ENTER) {
@@ -631,7 +643,7 @@ public class LauncherFrame extends JFrame {
         }
 
         // Execute the deleter
-        Remover resetter = new Remover(instance);
+        Remover resetter = new Remover(launcher, instance);
         ObservableFuture<Instance> future = new ObservableFuture<Instance>(
                 launcher.getExecutor().submit(resetter), resetter);
 
@@ -655,7 +667,7 @@ public class LauncherFrame extends JFrame {
         }
 
         // Execute the resetter
-        HardResetter resetter = new HardResetter(instance);
+        HardResetter resetter = new HardResetter(launcher, instance);
         ObservableFuture<Instance> future = new ObservableFuture<Instance>(
                 launcher.getExecutor().submit(resetter), resetter);
 
@@ -682,7 +694,7 @@ public class LauncherFrame extends JFrame {
         }
 
         // Execute the deleter
-        Remover resetter = new Remover(instance);
+        Remover resetter = new Remover(launcher, instance);
         ObservableFuture<Instance> future = new ObservableFuture<Instance>(
                 launcher.getExecutor().submit(resetter), resetter);
 
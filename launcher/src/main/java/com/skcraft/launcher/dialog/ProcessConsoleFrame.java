@@ -5,7 +5,12 @@
  */
 package com.skcraft.launcher.dialog;
 
+import com.skcraft.launcher.launch.ConsoleSpool;
+import com.skcraft.launcher.launch.CrashDiagnosis;
+import com.skcraft.launcher.launch.ProcessSample;
+import com.skcraft.launcher.launch.ProcessSampler;
 import com.skcraft.launcher.swing.LinedBoxPanel;
+import com.skcraft.launcher.swing.Sparkline;
 import com.skcraft.launcher.swing.SwingHelper;
 import com.skcraft.launcher.util.SharedLocale;
 import lombok.Getter;
@@ -19,6 +24,7 @@ import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
 import java.io.PrintWriter;
 import java.util.ArrayList;
+import java.util.List;
 import nz.co.lolnet.james137137.LauncherGobalSettings;
 
 /**
@@ -29,6 +35,14 @@ public class ProcessConsoleFrame extends ConsoleFrame {
     private JButton killButton;
     private JButton minimizeButton;
     private TrayIcon trayIcon;
+    private JLabel telemetryLabel;
+    private Sparkline cpuSparkline;
+    private Sparkline memorySparkline;
+    private Timer telemetryTimer;
+    private ConsoleSpool spool;
+    private JPanel diagnosisPanel;
+    @Getter
+    private final java.util.List<CrashDiagnosis> diagnoses = new ArrayList<CrashDiagnosis>();
     private long age;
     private static java.util.List<ProcessConsoleFrame> consoleList = new ArrayList<>();
 
@@ -88,6 +102,117 @@ public class ProcessConsoleFrame extends ConsoleFrame {
         });
     }
 
+    /**
+     * Show the output of the process from the given spool. Output is only
+     * passed to the message log while the frame is visible.
+     *
+     * @param spool the spool, or null
+     */
+    public void setSpool(ConsoleSpool spool) {
+        if (this.spool != null) {
+            this.spool.detach();
+        }
+
+        this.spool = spool;
+
+        if (spool != null && isVisible()) {
+            spool.attach(getMessageLog());
+        }
+    }
+
+    @Override
+    public void setVisible(boolean visible) {
+        super.setVisible(visible);
+
+        if (spool != null) {
+            if (visible) {
+                spool.attach(getMessageLog());
+            } else {
+                spool.detach();
+            }
+        }
+    }
+
+    /**
+     * Show a failure that was recognized in the output of the process above
+     * the log, and show the window if it is hidden.
+     *
+     * @param diagnosis the diagnosis
+     */
+    public void addDiagnosis(CrashDiagnosis diagnosis) {
+        diagnoses.add(diagnosis);
+
+        JLabel label = new JLabel("<html><b>" + SwingHelper.htmlEscape(diagnosis.getTitle()) + "</b><br>"
+                + SwingHelper.htmlEscape(diagnosis.getAdvice()) + "</html>");
+        label.setOpaque(true);
+        label.setBackground(new Color(0xFFF4D6));
+        label.setBorder(BorderFactory.createCompoundBorder(
+                BorderFactory.createMatteBorder(1, 0, 0, 0, new Color(0xE0C080)),
+                BorderFactory.createEmptyBorder(6, 8, 6, 8)));
+        label.setAlignmentX(Component.LEFT_ALIGNMENT);
+        label.setMaximumSize(new Dimension(Integer.MAX_VALUE, Integer.MAX_VALUE));
+
+        diagnosisPanel.add(label);
+        diagnosisPanel.setVisible(true);
+        diagnosisPanel.revalidate();
+
+        getMessageLog().log(SharedLocale.tr("console.diagnosis", diagnosis.getTitle(), diagnosis.getAdvice()),
+                getMessageLog().asHighlighted());
+
+        if (!isVisible()) {
+            reshow();
+        }
+    }
+
+    /**
+     * Show the resource use measured by the given sampler.
+     *
+     * @param sampler the sampler, or null to stop showing resource use
+     */
+    public void setSampler(final ProcessSampler sampler) {
+        if (telemetryTimer != null) {
+            telemetryTimer.stop();
+            telemetryTimer = null;
+        }
+
+        if (sampler != null) {
+            telemetryTimer = new Timer((int) sampler.getInterval(), new ActionListener() {
+                @Override
+                public void actionPerformed(ActionEvent e) {
+                    updateTelemetry(sampler);
+                }
+            });
+            telemetryTimer.start();
+        }
+    }
+
+    private void updateTelemetry(ProcessSampler sampler) {
+        List<ProcessSample> samples = sampler.getSamples();
+        if (samples.isEmpty()) {
+            return;
+        }
+
+        double[] cpu = new double[samples.size()];
+        double[] memory = new double[samples.size()];
+        for (int i = 0; i < samples.size(); i++) {
+            cpu[i] = samples.get(i).getCpu();
+            memory[i] = samples.get(i).getRss();
+        }
+
+        ProcessSample latest = samples.get(samples.size() - 1);
+        telemetryLabel.setText(SharedLocale.tr("console.telemetry",
+                Math.round(latest.getCpu()), latest.getRss() / 1024 / 1024, latest.getThreads()));
+        cpuSparkline.setValues(cpu);
+        memorySparkline.setValues(memory);
+        if (sampler.getMaxMemory() > 0) {
+            memorySparkline.setMinimumMax(sampler.getMaxMemory() * 1024.0 * 1024);
+        }
+
+        telemetryLabel.setVisible(true);
+        cpuSparkline.setVisible(true);
+        memorySparkline.setVisible(true);
+    }
+
     private synchronized boolean hasProcess() {
         return process != null;
     }
@@ -104,6 +229,9 @@ public class ProcessConsoleFrame extends ConsoleFrame {
             SystemTray.getSystemTray().remove(trayIcon);
         }
 
+        setSampler(null);
+        setSpool(null);
+
         super.performClose();
     }
 
@@ -125,12 +253,36 @@ public class ProcessConsoleFrame extends ConsoleFrame {
     protected void initComponents() {
         killButton = new JButton(SharedLocale.tr("console.forceClose"));
         minimizeButton = new JButton(); // Text set later
+        telemetryLabel = new JLabel();
+        cpuSparkline = new Sparkline(new Color(0, 128, 0));
+        cpuSparkline.setMinimumMax(100);
+        cpuSparkline.setToolTipText(SharedLocale.tr("console.cpuUsage"));
+        memorySparkline = new Sparkline(new Color(0, 0, 192));
+        memorySparkline.setToolTipText(SharedLocale.tr("console.memoryUsage"));
+
+        // Hidden until the first sample arrives
+        telemetryLabel.setVisible(false);
+        cpuSparkline.setVisible(false);
+        memorySparkline.setVisible(false);
 
         LinedBoxPanel buttonsPanel = getButtonsPanel();
+        buttonsPanel.addElement(telemetryLabel);
+        buttonsPanel.addElement(cpuSparkline);
+        buttonsPanel.addElement(memorySparkline);
         buttonsPanel.addGlue();
         buttonsPanel.addElement(killButton);
         buttonsPanel.addElement(minimizeButton);
 
+        diagnosisPanel = new JPanel();
+        diagnosisPanel.setLayout(new BoxLayout(diagnosisPanel, BoxLayout.Y_AXIS));
+        diagnosisPanel.setVisible(false);
+
+        JPanel northPanel = new JPanel(new BorderLayout());
+        remove(buttonsPanel);
+        northPanel.add(buttonsPanel, BorderLayout.NORTH);
+        northPanel.add(diagnosisPanel, BorderLayout.CENTER);
+        add(northPanel, BorderLayout.NORTH);
+
         killButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
@@ -0,0 +1,138 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Closer;
+import com.skcraft.launcher.util.SharedLocale;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static com.skcraft.launcher.LauncherUtils.checkInterrupted;
+
+/**
+ * Installs selected members of a downloaded archive in a single pass,
+ * recording every installed member in the install log.
+ * </p>
+ * Members are streamed out of the archive into a temporary file next to the
+ * target, verified against their expected hash (if any), and then moved into
+ * place. Archive entries that were not requested are skipped.
+ */
+@Log
+public class ArchiveExtract implements InstallTask {
+
+    private static final HashFunction hf = Hashing.sha1();
+
+    private final InstallLog installLog;
+    private final File archive;
+    private final Map<String, File> members;
+    private final Map<String, String> hashes;
+    private final int total;
+    private volatile int extracted;
+
+    /**
+     * Create a new task.
+     *
+     * @param installLog the install log
+     * @param archive the downloaded archive
+     * @param members a map of archive entry names to target files
+     * @param hashes a map of archive entry names to expected SHA-1 hashes
+     */
+    public ArchiveExtract(@NonNull InstallLog installLog, @NonNull File archive,
+                          @NonNull Map<String, File> members, @NonNull Map<String, String> hashes) {
+        this.installLog = installLog;
+        this.archive = archive;
+        this.members = new HashMap<String, File>(members);
+        this.hashes = hashes;
+        this.total = members.size();
+    }
+
+    @Override
+    public void execute() throws Exception {
+        log.log(Level.INFO, "Extracting {0} file(s) from {1}...", new Object[]{total, archive.getName()});
+
+        Map<String, File> remaining = new HashMap<String, File>(members);
+        byte[] buffer = new byte[8192];
+        Closer closer = Closer.create();
+
+        try {
+            InputStream is = closer.register(new BufferedInputStream(new FileInputStream(archive)));
+            ZipInputStream zis = closer.register(new ZipInputStream(is));
+            ZipEntry entry;
+
+            while (!remaining.isEmpty() && (entry = zis.getNextEntry()) != null) {
+                checkInterrupted();
+
+                File target = remaining.remove(entry.getName());
+                if (target == null || entry.isDirectory()) {
+                    continue;
+                }
+
+                writeMember(zis, entry.getName(), target, buffer);
+                installLog.add(target, target);
+                extracted++;
+            }
+        } finally {
+            closer.close();
+        }
+
+        if (!remaining.isEmpty()) {
+            throw new IOException(remaining.size() + " file(s) were missing from " + archive.getName()
+                    + ": " + remaining.keySet());
+        }
+
+        archive.delete();
+    }
+
+    private void writeMember(InputStream is, String name, File target, byte[] buffer) throws IOException {
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+        target.getParentFile().mkdirs();
+
+        Hasher hasher = hf.newHasher();
+        OutputStream os = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                os.write(buffer, 0, len);
+                hasher.putBytes(buffer, 0, len);
+            }
+        } finally {
+            os.close();
+        }
+
+        String expected = hashes.get(name);
+        if (expected != null && !expected.equalsIgnoreCase(hasher.hash().toString())) {
+            tempFile.delete();
+            throw new IOException("Hash mismatch for " + name + " in " + archive.getName());
+        }
+
+        target.delete();
+        if (!tempFile.renameTo(target)) {
+            throw new IOException(String.format("Failed to rename %s to %s", tempFile, target));
+        }
+    }
+
+    @Override
+    public double getProgress() {
+        return total > 0 ? extracted / (double) total : -1;
+    }
+
+    @Override
+    public String getStatus() {
+        return SharedLocale.tr("installer.extractingArchive", archive.getName(), extracted, total);
+    }
+
+}
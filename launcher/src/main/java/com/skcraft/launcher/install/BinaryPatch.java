@@ -0,0 +1,131 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Closer;
+import com.google.common.io.Files;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * Applies patches in the standard bsdiff (<code>BSDIFF40</code>) format, as
+ * produced by the <code>bsdiff</code> tool.
+ */
+public final class BinaryPatch {
+
+    private static final byte[] MAGIC = "BSDIFF40".getBytes();
+    private static final int HEADER_SIZE = 32;
+    private static final int MAX_NEW_SIZE = 256 * 1024 * 1024; // Larger files are downloaded in full
+
+    private BinaryPatch() {
+    }
+
+    /**
+     * Apply a patch to an old file and write the result to a new file.
+     *
+     * @param oldFile the file to patch
+     * @param patchFile the patch
+     * @param newFile the file to write the result to
+     * @throws IOException on I/O error or if the patch is corrupt
+     */
+    public static void apply(File oldFile, File patchFile, File newFile) throws IOException {
+        byte[] oldData = Files.toByteArray(oldFile);
+        byte[] patch = Files.toByteArray(patchFile);
+
+        if (patch.length < HEADER_SIZE || !Arrays.equals(MAGIC, Arrays.copyOf(patch, MAGIC.length))) {
+            throw new IOException("Not a bsdiff patch: " + patchFile);
+        }
+
+        long ctrlLength = readOffset(patch, 8);
+        long diffLength = readOffset(patch, 16);
+        long newSize = readOffset(patch, 24);
+
+        // Each length is checked on its own so that a huge value can't overflow the sum
+        if (ctrlLength < 0 || ctrlLength > patch.length - HEADER_SIZE
+                || diffLength < 0 || diffLength > patch.length - HEADER_SIZE - ctrlLength) {
+            throw new IOException("Corrupt patch header: " + patchFile);
+        }
+
+        if (newSize < 0 || newSize > MAX_NEW_SIZE) {
+            throw new IOException("Patched file would be too large (" + newSize + " bytes): " + patchFile);
+        }
+
+        int diffOffset = (int) (HEADER_SIZE + ctrlLength);
+        int extraOffset = (int) (diffOffset + diffLength);
+        byte[] newData = new byte[(int) newSize];
+        byte[] ctrl = new byte[8];
+
+        Closer closer = Closer.create();
+        try {
+            InputStream ctrlStream = closer.register(openBlock(patch, HEADER_SIZE, (int) ctrlLength));
+            InputStream diffStream = closer.register(openBlock(patch, diffOffset, (int) diffLength));
+            InputStream extraStream = closer.register(openBlock(patch, extraOffset, patch.length - extraOffset));
+
+            long oldPos = 0;
+            int newPos = 0;
+
+            while (newPos < newData.length) {
+                ByteStreams.readFully(ctrlStream, ctrl);
+                long addLength = readOffset(ctrl, 0);
+                ByteStreams.readFully(ctrlStream, ctrl);
+                long copyLength = readOffset(ctrl, 0);
+                ByteStreams.readFully(ctrlStream, ctrl);
+                long seek = readOffset(ctrl, 0);
+
+                if (addLength < 0 || newPos + addLength > newData.length) {
+                    throw new IOException("Corrupt patch: " + patchFile);
+                }
+
+                ByteStreams.readFully(diffStream, newData, newPos, (int) addLength);
+                for (int i = 0; i < addLength; i++) {
+                    long o = oldPos + i;
+                    if (o >= 0 && o < oldData.length) {
+                        newData[newPos + i] += oldData[(int) o];
+                    }
+                }
+
+                newPos += addLength;
+                oldPos += addLength;
+
+                if (copyLength < 0 || newPos + copyLength > newData.length) {
+                    throw new IOException("Corrupt patch: " + patchFile);
+                }
+
+                ByteStreams.readFully(extraStream, newData, newPos, (int) copyLength);
+
+                newPos += copyLength;
+                oldPos += seek;
+            }
+        } catch (RuntimeException e) {
+            // Damaged bzip2 data can fail with unchecked exceptions
+            throw new IOException("Corrupt patch: " + patchFile, e);
+        } finally {
+            closer.close();
+        }
+
+        Files.write(newData, newFile);
+    }
+
+    private static InputStream openBlock(byte[] patch, int offset, int length) throws IOException {
+        return new BZip2CompressorInputStream(new ByteArrayInputStream(patch, offset, length));
+    }
+
+    /**
+     * Read a signed-magnitude little endian 64-bit integer, as used by bsdiff.
+     */
+    private static long readOffset(byte[] buf, int offset) {
+        long y = buf[offset + 7] & 0x7F;
+        for (int i = 6; i >= 0; i--) {
+            y = (y << 8) | (buf[offset + i] & 0xFF);
+        }
+        return (buf[offset + 7] & 0x80) != 0 ? -y : y;
+    }
+
+}
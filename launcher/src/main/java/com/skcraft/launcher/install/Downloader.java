@@ -18,4 +18,16 @@ public interface Downloader extends ProgressObservable {
     File download(List<URL> urls, String key, long size, String name);
 
     File download(URL url, String key, long size, String name);
+
+    /**
+     * Queue a download whose failure does not fail the download phase. The
+     * returned file will not exist if the download could not be completed.
+     *
+     * @param url the URL
+     * @param key the key
+     * @param size the estimated size
+     * @param name the name shown for the download
+     * @return the file that will contain the download
+     */
+    File downloadOptional(URL url, String key, long size, String name);
 }
@@ -0,0 +1,121 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.skcraft.launcher.util.HttpRequest;
+import com.skcraft.launcher.util.SharedLocale;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.logging.Level;
+
+/**
+ * Updates an installed file by applying a binary patch to the existing copy.
+ * </p>
+ * The result is verified against the expected hash before it replaces the
+ * existing file. If the patch could not be downloaded, could not be applied,
+ * or produces the wrong file, the full file is downloaded instead.
+ */
+@Log
+public class FilePatcher implements InstallTask {
+
+    private static final HashFunction hf = Hashing.sha1();
+
+    private final InstallLog installLog;
+    private final File target;
+    private final File patchFile;
+    private final String hash;
+    private final URL fallbackUrl;
+    private HttpRequest request;
+
+    /**
+     * Create a new task.
+     *
+     * @param installLog the install log
+     * @param target the installed file to patch
+     * @param patchFile the downloaded patch, which may not exist if its download failed
+     * @param hash the expected SHA-1 hash of the patched file
+     * @param fallbackUrl the URL of the full file
+     */
+    public FilePatcher(@NonNull InstallLog installLog, @NonNull File target, @NonNull File patchFile,
+                       @NonNull String hash, @NonNull URL fallbackUrl) {
+        this.installLog = installLog;
+        this.target = target;
+        this.patchFile = patchFile;
+        this.hash = hash;
+        this.fallbackUrl = fallbackUrl;
+    }
+
+    @Override
+    public void execute() throws Exception {
+        File tempFile = new File(target.getParentFile(), target.getName() + ".tmp");
+
+        if (!tryPatch(tempFile)) {
+            log.log(Level.INFO, "Downloading full copy of {0} from {1}...", new Object[]{target.getName(), fallbackUrl});
+            request = HttpRequest.get(fallbackUrl);
+            request.execute().expectResponseCode(200).saveContent(tempFile);
+
+            if (!matchesHash(tempFile)) {
+                tempFile.delete();
+                throw new IOException("Downloaded file " + fallbackUrl + " did not match the expected hash");
+            }
+        }
+
+        target.delete();
+        if (!tempFile.renameTo(target)) {
+            throw new IOException(String.format("Failed to rename %s to %s", tempFile, target));
+        }
+        installLog.add(target, target);
+    }
+
+    private boolean tryPatch(File tempFile) {
+        if (!patchFile.exists()) {
+            log.log(Level.WARNING, "Patch for {0} is not available", target.getName());
+            return false;
+        }
+
+        try {
+            log.log(Level.INFO, "Patching {0} (with {1})...", new Object[]{target.getAbsoluteFile(), patchFile.getName()});
+            BinaryPatch.apply(target, patchFile, tempFile);
+
+            if (matchesHash(tempFile)) {
+                return true;
+            } else {
+                log.log(Level.WARNING, "Patched {0} did not match the expected hash", target.getName());
+            }
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to patch " + target.getName(), e);
+        } finally {
+            patchFile.delete();
+        }
+
+        tempFile.delete();
+        return false;
+    }
+
+    private boolean matchesHash(File file) throws IOException {
+        return Files.hash(file, hf).toString().equalsIgnoreCase(hash);
+    }
+
+    @Override
+    public double getProgress() {
+        HttpRequest request = this.request;
+        return request != null ? request.getProgress() : -1;
+    }
+
+    @Override
+    public String getStatus() {
+        return SharedLocale.tr("installer.patchingFile", target.getName());
+    }
+
+}
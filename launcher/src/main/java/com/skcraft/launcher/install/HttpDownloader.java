@@ -50,6 +50,8 @@ public class HttpDownloader implements Downloader {
 
     private List<HttpDownloadJob> queue = new ArrayList<HttpDownloadJob>();
     private final Set<String> usedKeys = new HashSet<String>();
+    private ListeningExecutorService executor;
+    private final List<ListenableFuture<?>> futures = new ArrayList<ListenableFuture<?>>();
 
     private final List<HttpDownloadJob> running = new ArrayList<HttpDownloadJob>();
     private final List<HttpDownloadJob> failed = new ArrayList<HttpDownloadJob>();
@@ -88,6 +90,10 @@ public class HttpDownloader implements Downloader {
 
     @Override
     public synchronized File download(@NonNull List<URL> urls, @NonNull String key, long size, String name) {
+        return download(urls, key, size, name, false);
+    }
+
+    private synchronized File download(List<URL> urls, String key, long size, String name, boolean optional) {
         if (urls.isEmpty()) {
             throw new IllegalArgumentException("Can't download empty list of URLs");
         }
@@ -100,9 +106,14 @@ public class HttpDownloader implements Downloader {
         if (!tempFile.exists()) {
             total += size;
             left++;
-            HttpDownloadJob job = new HttpDownloadJob(tempFile, urls, size, name != null ? name : tempFile.getName());
+            HttpDownloadJob job = new HttpDownloadJob(tempFile, urls, size, name != null ? name : tempFile.getName(), optional);
             totalSize += job.size;
             queue.add(job);
+            if (executor != null) {
+                futures.add(executor.submit(job));
+            }
+        } else {
+            TempStoreCleaner.touch(tempFile);
         }
 
         return tempFile;
@@ -115,29 +126,55 @@ public class HttpDownloader implements Downloader {
         return download(urls, key, size, name);
     }
 
+    @Override
+    public File downloadOptional(URL url, String key, long size, String name) {
+        List<URL> urls = new ArrayList<URL>();
+        urls.add(url);
+        return download(urls, key, size, name, true);
+    }
+
+    /**
+     * Start downloading queued files, and start each file that is queued
+     * from now on as soon as it is queued. Calling this more than once
+     * has no effect.
+     */
+    public synchronized void start() {
+        if (executor == null) {
+            executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(threadCount));
+            for (HttpDownloadJob job : queue) {
+                futures.add(executor.submit(job));
+            }
+        }
+    }
+
     /**
-     * Prevent further downloads from being queued and download queued files.
+     * Stop downloading, such as when the update has failed before
+     * {@link #execute()} was called.
+     */
+    public synchronized void cancel() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Prevent further downloads from being queued and wait for all queued
+     * files to be downloaded, starting them if {@link #start()} was not
+     * called.
      *
      * @throws InterruptedException thrown on interruption
      * @throws IOException thrown on I/O error
      */
     public void execute() throws InterruptedException, IOException {
+        List<ListenableFuture<?>> futures;
+
         synchronized (this) {
             queue = Collections.unmodifiableList(queue);
+            start();
+            futures = new ArrayList<ListenableFuture<?>>(this.futures);
         }
 
-        ListeningExecutorService executor = MoreExecutors.listeningDecorator(
-                Executors.newFixedThreadPool(threadCount));
-
         try {
-            List<ListenableFuture<?>> futures = new ArrayList<ListenableFuture<?>>();
-
-            synchronized (this) {
-                for (HttpDownloadJob job : queue) {
-                    futures.add(executor.submit(job));
-                }
-            }
-
             try {
                 Futures.allAsList(futures).get();
             } catch (ExecutionException e) {
@@ -150,7 +187,7 @@ public class HttpDownloader implements Downloader {
                 }
             }
         } finally {
-            executor.shutdownNow();
+            cancel();
         }
     }
 
@@ -217,15 +254,17 @@ public class HttpDownloader implements Downloader {
         private final File destFile;
         private final List<URL> urls;
         private final long size;
+        private final boolean optional;
         @Getter
         private String name;
         private HttpRequest request;
 
-        private HttpDownloadJob(File destFile, List<URL> urls, long size, String name) {
+        private HttpDownloadJob(File destFile, List<URL> urls, long size, String name, boolean optional) {
             this.destFile = destFile;
             this.urls = urls;
             this.size = size;
             this.name = name;
+            this.optional = optional;
         }
 
         @Override
@@ -242,7 +281,12 @@ public class HttpDownloader implements Downloader {
                 }
             } catch (IOException e) {
                 synchronized (HttpDownloader.this) {
-                    failed.add(this);
+                    if (optional) {
+                        log.info("Optional download of " + destFile + " failed; skipping");
+                        downloaded += size;
+                    } else {
+                        failed.add(this);
+                    }
                 }
             } catch (InterruptedException e) {
                 log.info("Download of " + destFile + " was interrupted");
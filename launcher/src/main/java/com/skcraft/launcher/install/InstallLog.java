@@ -7,35 +7,41 @@
 package com.skcraft.launcher.install;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
-import lombok.Data;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 
 import java.io.File;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
-@Data
+/**
+ * Records the files that were installed, in groups.
+ * </p>
+ * Paths are interned in a {@link PathTable}, and each entry of a group is
+ * stored as a pair of path IDs packed into a long, so a large install log
+ * takes a fraction of the memory that sets of strings would. The entries
+ * are still read and written as a map of groups to sets of paths.
+ */
 public class InstallLog {
 
-    @JsonIgnore
+    private static final long EMPTY = -1;
+
+    @JsonIgnore @Getter @Setter
     private File baseDir;
-    private Map<String, Set<String>> entries = new HashMap<String, Set<String>>();
-    @JsonIgnore
-    private Set<String> cache = new HashSet<String>();
+    private final PathTable paths = new PathTable();
+    private long[] pairs = newTable(64);
+    private int pairCount;
+    private final BitSet groups = new BitSet();
+    private final BitSet cache = new BitSet();
+    private long[] sorted;
 
     public synchronized void add(@NonNull String group, @NonNull String entry) {
-        cache.add(entry);
-        Set<String> subEntries = entries.get(group);
-        if (subEntries == null) {
-            subEntries = new HashSet<String>();
-            entries.put(group, subEntries);
-        }
-        subEntries.add(entry);
+        int entryId = paths.intern(entry);
+        cache.set(entryId);
+        put(paths.intern(group), entryId);
     }
 
     public synchronized void add(@NonNull File group, @NonNull File entry) {
@@ -43,20 +49,24 @@ public class InstallLog {
     }
 
     public synchronized boolean has(@NonNull String entry) {
-        return cache.contains(entry);
+        int id = paths.find(entry);
+        return id != -1 && cache.get(id);
     }
 
     public synchronized boolean has(@NonNull File entry) {
         return has(relativize(entry));
     }
 
-    public synchronized boolean copyGroupFrom(InstallLog other, String group) {
-        Set<String> otherSet = other.entries.get(group);
-        if (otherSet == null) {
+    public boolean copyGroupFrom(InstallLog other, String group) {
+        // Read the other log first so that the two locks are never held together
+        String[] otherEntries = other.getGroupEntries(group);
+        if (otherEntries == null) {
             return false;
         }
-        for (String entry : otherSet) {
-            add(group, entry);
+        synchronized (this) {
+            for (String entry : otherEntries) {
+                add(group, entry);
+            }
         }
         return true;
     }
@@ -67,11 +77,125 @@ public class InstallLog {
 
     @JsonIgnore
     public synchronized Set<Map.Entry<String, Set<String>>> getEntrySet() {
-        return entries.entrySet();
+        return getEntries().entrySet();
     }
 
     public synchronized boolean hasGroup(String group) {
-        return entries.containsKey(group);
+        int id = paths.find(group);
+        return id != -1 && groups.get(id);
+    }
+
+    /**
+     * Get the entries of every group. The sets are read-only views that
+     * don't change when entries are added later.
+     *
+     * @return a map of groups to entries
+     */
+    public synchronized Map<String, Set<String>> getEntries() {
+        long[] sorted = getSorted();
+        Map<String, Set<String>> entries = new LinkedHashMap<String, Set<String>>();
+        int from = 0;
+        while (from < sorted.length) {
+            int group = (int) (sorted[from] >>> 32);
+            int to = from + 1;
+            while (to < sorted.length && (int) (sorted[to] >>> 32) == group) {
+                to++;
+            }
+            entries.put(paths.get(group), new GroupView(sorted, from, to));
+            from = to;
+        }
+        return entries;
+    }
+
+    /**
+     * Replace the entries of every group. Entries that are set this way
+     * are not reported by {@link #has(String)}, which only covers entries
+     * that were added.
+     *
+     * @param entries a map of groups to entries
+     */
+    public synchronized void setEntries(@NonNull Map<String, Set<String>> entries) {
+        pairs = newTable(64);
+        pairCount = 0;
+        groups.clear();
+        sorted = null;
+
+        for (Map.Entry<String, Set<String>> entry : entries.entrySet()) {
+            int group = paths.intern(entry.getKey());
+            groups.set(group);
+            for (String path : entry.getValue()) {
+                put(group, paths.intern(path));
+            }
+        }
+    }
+
+    private synchronized String[] getGroupEntries(String group) {
+        int id = paths.find(group);
+        if (id == -1 || !groups.get(id)) {
+            return null;
+        }
+
+        long[] sorted = getSorted();
+        int from = lowerBound(sorted, 0, sorted.length, (long) id << 32);
+        int to = lowerBound(sorted, from, sorted.length, (long) (id + 1) << 32);
+        String[] entries = new String[to - from];
+        for (int i = from; i < to; i++) {
+            entries[i - from] = paths.get((int) sorted[i]);
+        }
+        return entries;
+    }
+
+    private void put(int group, int entry) {
+        groups.set(group);
+        long pair = ((long) group << 32) | entry;
+
+        int mask = pairs.length - 1;
+        int i = hash(pair) & mask;
+        while (pairs[i] != EMPTY) {
+            if (pairs[i] == pair) {
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        pairs[i] = pair;
+        pairCount++;
+        sorted = null;
+
+        if (pairCount * 2 > pairs.length) {
+            long[] old = pairs;
+            pairs = newTable(old.length * 2);
+            mask = pairs.length - 1;
+            for (long value : old) {
+                if (value != EMPTY) {
+                    int j = hash(value) & mask;
+                    while (pairs[j] != EMPTY) {
+                        j = (j + 1) & mask;
+                    }
+                    pairs[j] = value;
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the pairs sorted by group and then by entry, which is kept until
+     * the next change.
+     *
+     * @return the sorted pairs
+     */
+    private long[] getSorted() {
+        if (sorted == null) {
+            long[] result = new long[pairCount];
+            int count = 0;
+            for (long pair : pairs) {
+                if (pair != EMPTY) {
+                    result[count++] = pair;
+                }
+            }
+            Arrays.sort(result);
+            sorted = result;
+        }
+        return sorted;
     }
 
     private String relativize(File child) {
@@ -84,4 +208,90 @@ public class InstallLog {
         return relative;
     }
 
+    private static long[] newTable(int size) {
+        long[] table = new long[size];
+        Arrays.fill(table, EMPTY);
+        return table;
+    }
+
+    private static int hash(long pair) {
+        long hash = pair * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    private static int lowerBound(long[] array, int from, int to, long key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (array[mid] < key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+
+    /**
+     * The entries of one group, as a range of the sorted pairs.
+     */
+    private class GroupView extends AbstractSet<String> {
+        private final long[] sorted;
+        private final int from;
+        private final int to;
+
+        private GroupView(long[] sorted, int from, int to) {
+            this.sorted = sorted;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<String>() {
+                private int index = from;
+
+                @Override
+                public boolean hasNext() {
+                    return index < to;
+                }
+
+                @Override
+                public String next() {
+                    if (index >= to) {
+                        throw new NoSuchElementException();
+                    }
+                    synchronized (InstallLog.this) {
+                        return paths.get((int) sorted[index++]);
+                    }
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+            synchronized (InstallLog.this) {
+                int id = paths.find((String) o);
+                if (id == -1) {
+                    return false;
+                }
+                long pair = (sorted[from] & 0xFFFFFFFF00000000L) | id;
+                int index = lowerBound(sorted, from, to, pair);
+                return index < to && sorted[index] == pair;
+            }
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+
 }
@@ -42,6 +42,21 @@ public class Installer implements ProgressObservable {
         count++;
     }
 
+    /**
+     * Start downloading files as soon as they are queued, rather than
+     * waiting for {@link #download()}.
+     */
+    public void startDownloads() {
+        downloader.start();
+    }
+
+    /**
+     * Stop any downloads that were started.
+     */
+    public void cancelDownloads() {
+        downloader.cancel();
+    }
+
     public void download() throws IOException, InterruptedException {
         downloader.execute();
     }
@@ -0,0 +1,256 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import java.util.Arrays;
+
+/**
+ * Interns relative paths as small integers, storing each directory only
+ * once.
+ * </p>
+ * A path is split after every <code>/</code>, and every segment is kept
+ * once in a shared character pool. Paths form a tree where each node is a
+ * parent and a segment, so <code>mods/a.jar</code> and <code>mods/b.jar</code>
+ * share the node for <code>mods/</code>. Node 0 is the empty path. Not
+ * thread-safe.
+ */
+class PathTable {
+
+    private static final int NONE = -1;
+
+    // Segments
+    private char[] pool = new char[1024];
+    private int poolSize;
+    private int[] segmentOffsets = new int[64];
+    private int[] segmentLengths = new int[64];
+    private int segmentCount;
+    private int[] segmentTable = newTable(64);
+
+    // Nodes
+    private int[] nodeParents = new int[64];
+    private int[] nodeSegments = new int[64];
+    private int nodeCount = 1;
+    private int[] nodeTable = newTable(64);
+
+    public PathTable() {
+        nodeParents[0] = NONE;
+        nodeSegments[0] = NONE;
+    }
+
+    /**
+     * Get the number of paths, including the empty path.
+     *
+     * @return the number of paths
+     */
+    public int size() {
+        return nodeCount;
+    }
+
+    /**
+     * Get the ID of a path, adding the path if needed.
+     *
+     * @param path the path
+     * @return the ID
+     */
+    public int intern(String path) {
+        int node = 0;
+        int start = 0;
+        while (start < path.length()) {
+            int end = segmentEnd(path, start);
+            int segment = findSegment(path, start, end);
+            if (segment == NONE) {
+                segment = addSegment(path, start, end);
+            }
+            int child = findNode(node, segment);
+            node = child != NONE ? child : addNode(node, segment);
+            start = end;
+        }
+        return node;
+    }
+
+    /**
+     * Get the ID of a path without adding it.
+     *
+     * @param path the path
+     * @return the ID, or -1 if the path has not been added
+     */
+    public int find(String path) {
+        int node = 0;
+        int start = 0;
+        while (start < path.length()) {
+            int end = segmentEnd(path, start);
+            int segment = findSegment(path, start, end);
+            if (segment == NONE) {
+                return NONE;
+            }
+            node = findNode(node, segment);
+            if (node == NONE) {
+                return NONE;
+            }
+            start = end;
+        }
+        return node;
+    }
+
+    /**
+     * Get the path with the given ID.
+     *
+     * @param id the ID
+     * @return the path
+     */
+    public String get(int id) {
+        if (id < 0 || id >= nodeCount) {
+            throw new IndexOutOfBoundsException("No path " + id);
+        }
+
+        int length = 0;
+        for (int node = id; node != 0; node = nodeParents[node]) {
+            length += segmentLengths[nodeSegments[node]];
+        }
+
+        char[] chars = new char[length];
+        int end = length;
+        for (int node = id; node != 0; node = nodeParents[node]) {
+            int segment = nodeSegments[node];
+            end -= segmentLengths[segment];
+            System.arraycopy(pool, segmentOffsets[segment], chars, end, segmentLengths[segment]);
+        }
+        return new String(chars);
+    }
+
+    private static int segmentEnd(String path, int start) {
+        int slash = path.indexOf('/', start);
+        return slash != -1 ? slash + 1 : path.length();
+    }
+
+    private int findSegment(String path, int start, int end) {
+        int mask = segmentTable.length - 1;
+        for (int i = hashSegment(path, start, end) & mask; ; i = (i + 1) & mask) {
+            int segment = segmentTable[i];
+            if (segment == NONE) {
+                return NONE;
+            }
+            if (segmentEquals(segment, path, start, end)) {
+                return segment;
+            }
+        }
+    }
+
+    private boolean segmentEquals(int segment, String path, int start, int end) {
+        if (segmentLengths[segment] != end - start) {
+            return false;
+        }
+        int offset = segmentOffsets[segment];
+        for (int i = start; i < end; i++) {
+            if (pool[offset++] != path.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int addSegment(String path, int start, int end) {
+        int length = end - start;
+        if (poolSize + length > pool.length) {
+            pool = Arrays.copyOf(pool, Math.max(pool.length * 2, poolSize + length));
+        }
+        path.getChars(start, end, pool, poolSize);
+
+        if (segmentCount == segmentOffsets.length) {
+            segmentOffsets = Arrays.copyOf(segmentOffsets, segmentCount * 2);
+            segmentLengths = Arrays.copyOf(segmentLengths, segmentCount * 2);
+        }
+        int segment = segmentCount++;
+        segmentOffsets[segment] = poolSize;
+        segmentLengths[segment] = length;
+        poolSize += length;
+
+        if (segmentCount * 2 > segmentTable.length) {
+            segmentTable = newTable(segmentTable.length * 2);
+            for (int i = 0; i < segmentCount; i++) {
+                insert(segmentTable, hashSegment(pool, segmentOffsets[i], segmentLengths[i]), i);
+            }
+        } else {
+            insert(segmentTable, hashSegment(path, start, end), segment);
+        }
+        return segment;
+    }
+
+    private int findNode(int parent, int segment) {
+        int mask = nodeTable.length - 1;
+        for (int i = hashNode(parent, segment) & mask; ; i = (i + 1) & mask) {
+            int node = nodeTable[i];
+            if (node == NONE) {
+                return NONE;
+            }
+            if (nodeParents[node] == parent && nodeSegments[node] == segment) {
+                return node;
+            }
+        }
+    }
+
+    private int addNode(int parent, int segment) {
+        if (nodeCount == nodeParents.length) {
+            nodeParents = Arrays.copyOf(nodeParents, nodeCount * 2);
+            nodeSegments = Arrays.copyOf(nodeSegments, nodeCount * 2);
+        }
+        int node = nodeCount++;
+        nodeParents[node] = parent;
+        nodeSegments[node] = segment;
+
+        if (nodeCount * 2 > nodeTable.length) {
+            nodeTable = newTable(nodeTable.length * 2);
+            for (int i = 1; i < nodeCount; i++) {
+                insert(nodeTable, hashNode(nodeParents[i], nodeSegments[i]), i);
+            }
+        } else {
+            insert(nodeTable, hashNode(parent, segment), node);
+        }
+        return node;
+    }
+
+    private static int[] newTable(int size) {
+        int[] table = new int[size];
+        Arrays.fill(table, NONE);
+        return table;
+    }
+
+    private static void insert(int[] table, int hash, int value) {
+        int mask = table.length - 1;
+        int i = hash & mask;
+        while (table[i] != NONE) {
+            i = (i + 1) & mask;
+        }
+        table[i] = value;
+    }
+
+    private static int hashSegment(String path, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + path.charAt(i);
+        }
+        return mix(hash);
+    }
+
+    private static int hashSegment(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        return mix(hash);
+    }
+
+    private static int hashNode(int parent, int segment) {
+        return mix(parent * 31 + segment);
+    }
+
+    private static int mix(int hash) {
+        hash *= 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+}
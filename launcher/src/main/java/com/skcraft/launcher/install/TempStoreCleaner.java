@@ -0,0 +1,164 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Trims the temporary install directory used by {@link HttpDownloader}.
+ * </p>
+ * Entries are evicted least-recently-used first (using the file's
+ * modification time, which the downloader refreshes whenever it reuses an
+ * entry) until the directory fits in the configured budget. Entries used
+ * within the grace period are never removed, so files that belong to an
+ * update in progress are left alone. Partial downloads (<code>.tmp</code>)
+ * older than the grace period are always removed.
+ */
+@Log
+public class TempStoreCleaner implements Runnable {
+
+    private static final String PARTIAL_SUFFIX = ".tmp";
+
+    private final File dir;
+    @Getter @Setter
+    private long maxSize;
+    @Getter @Setter
+    private long gracePeriod = 1000 * 60 * 60;
+
+    /**
+     * Create a new cleaner.
+     *
+     * @param dir the temporary install directory
+     * @param maxSize the maximum total size in bytes to keep
+     */
+    public TempStoreCleaner(@NonNull File dir, long maxSize) {
+        this.dir = dir;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public void run() {
+        File[] buckets = dir.listFiles();
+        if (buckets == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        List<File> entries = new ArrayList<File>();
+        final Map<File, Long> modified = new HashMap<File, Long>();
+        long totalSize = 0;
+
+        for (File bucket : buckets) {
+            File[] files = bucket.isDirectory() ? bucket.listFiles() : new File[] { bucket };
+            if (files == null) {
+                continue;
+            }
+
+            for (File file : files) {
+                if (!file.isFile()) {
+                    continue;
+                }
+
+                long lastModified = file.lastModified();
+                boolean recent = (now - lastModified) < gracePeriod;
+                if (file.getName().endsWith(PARTIAL_SUFFIX)) {
+                    if (!recent) {
+                        deleteUnused(file);
+                    }
+                } else {
+                    if (!recent) {
+                        entries.add(file);
+                        modified.put(file, lastModified);
+                    }
+                    totalSize += file.length();
+                }
+            }
+        }
+
+        if (totalSize <= maxSize) {
+            return;
+        }
+
+        // Use the times read during the scan, since the downloader may touch files while sorting
+        Collections.sort(entries, new Comparator<File>() {
+            @Override
+            public int compare(File o1, File o2) {
+                long t1 = modified.get(o1);
+                long t2 = modified.get(o2);
+                return t1 < t2 ? -1 : (t1 > t2 ? 1 : 0);
+            }
+        });
+
+        long freed = 0;
+        for (File file : entries) {
+            if (totalSize <= maxSize) {
+                break;
+            }
+
+            long length = file.length();
+            if (deleteUnused(file)) {
+                totalSize -= length;
+                freed += length;
+            }
+        }
+
+        for (File bucket : buckets) {
+            if (bucket.isDirectory()) {
+                String[] remaining = bucket.list();
+                if (remaining != null && remaining.length == 0) {
+                    bucket.delete();
+                }
+            }
+        }
+
+        log.info("Freed " + (freed / 1024 / 1024) + " MB from " + dir.getAbsolutePath());
+    }
+
+    /**
+     * Delete a file unless it was used within the grace period. The time is
+     * read again because an update may have touched the file since the scan.
+     *
+     * @param file the file
+     * @return true if the file was deleted
+     */
+    private boolean deleteUnused(File file) {
+        if (System.currentTimeMillis() - file.lastModified() < gracePeriod) {
+            return false;
+        }
+        return delete(file);
+    }
+
+    private static boolean delete(File file) {
+        if (file.delete()) {
+            return true;
+        } else {
+            log.warning("Failed to delete " + file.getAbsolutePath());
+            return false;
+        }
+    }
+
+    /**
+     * Mark an entry as used so that it is evicted last.
+     *
+     * @param file the entry
+     */
+    public static void touch(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+}
@@ -8,32 +8,92 @@ package com.skcraft.launcher.install;
 
 import com.google.common.io.ByteSource;
 import com.google.common.io.Closer;
+import com.google.common.io.Files;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.skcraft.launcher.util.SharedLocale;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
 import org.apache.commons.io.IOUtils;
 
 import java.io.*;
+import java.util.ArrayList;
+import java.util.Enumeration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import static com.skcraft.launcher.LauncherUtils.checkInterrupted;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 
-public class ZipExtract implements Runnable {
+/**
+ * Extracts a zip archive into a directory.
+ * </p>
+ * When constructed with a file, the archive's central directory is read
+ * first so that excluded entries are skipped without being inflated, and
+ * the remaining entries are extracted in parallel with their output files
+ * preallocated to the known uncompressed size. Otherwise, the archive is
+ * read sequentially from the byte source.
+ */
+public class ZipExtract implements Runnable, InstallTask {
+
+    private static final int BUFFER_SIZE = 16 * 1024;
 
     @Getter private final ByteSource source;
+    @Getter private final File archive;
     @Getter private final File destination;
     @Getter @Setter
     private List<String> exclude;
+    @Getter @Setter
+    private int threadCount = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private final AtomicInteger extracted = new AtomicInteger();
+    private volatile int total = -1;
 
     public ZipExtract(@NonNull ByteSource source, @NonNull File destination) {
         this.source = source;
+        this.archive = null;
+        this.destination = destination;
+    }
+
+    public ZipExtract(@NonNull File archive, @NonNull File destination) {
+        this.source = Files.asByteSource(archive);
+        this.archive = archive;
         this.destination = destination;
     }
 
     @Override
     public void run() {
+        try {
+            execute();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void execute() throws IOException, InterruptedException {
+        destination.getParentFile().mkdirs();
+
+        if (archive != null) {
+            extractFromFile();
+        } else {
+            extractFromStream();
+        }
+    }
+
+    private void extractFromStream() throws IOException {
         Closer closer = Closer.create();
 
         try {
@@ -41,21 +101,67 @@ public class ZipExtract implements Runnable {
             ZipInputStream zis = closer.register(new ZipInputStream(is));
             ZipEntry entry;
 
-            destination.getParentFile().mkdirs();
-
             while ((entry = zis.getNextEntry()) != null) {
                 if (matches(entry)) {
                     File file = new File(getDestination(), entry.getName());
                     writeEntry(zis, file);
+                    extracted.incrementAndGet();
                 }
             }
-        } catch (IOException e) {
-            throw new RuntimeException(e);
         } finally {
+            closer.close();
+        }
+    }
+
+    private void extractFromFile() throws IOException, InterruptedException {
+        final ZipFile zipFile = new ZipFile(archive);
+
+        try {
+            List<ZipEntry> entries = new ArrayList<ZipEntry>();
+            Enumeration<? extends ZipEntry> it = zipFile.entries();
+            while (it.hasMoreElements()) {
+                ZipEntry entry = it.nextElement();
+                if (!entry.isDirectory() && matches(entry)) {
+                    entries.add(entry);
+                }
+            }
+
+            total = entries.size();
+
+            if (threadCount <= 1 || entries.size() <= 1) {
+                for (ZipEntry entry : entries) {
+                    checkInterrupted();
+                    writeEntry(zipFile, entry);
+                }
+                return;
+            }
+
+            ListeningExecutorService executor = MoreExecutors.listeningDecorator(
+                    Executors.newFixedThreadPool(Math.min(threadCount, entries.size())));
+
             try {
-                closer.close();
-            } catch (IOException e) {
+                List<ListenableFuture<?>> futures = new ArrayList<ListenableFuture<?>>();
+
+                for (final ZipEntry entry : entries) {
+                    futures.add(executor.submit(new Callable<Object>() {
+                        @Override
+                        public Object call() throws Exception {
+                            writeEntry(zipFile, entry);
+                            return null;
+                        }
+                    }));
+                }
+
+                try {
+                    Futures.allAsList(futures).get();
+                } catch (ExecutionException e) {
+                    throw new IOException("Failed to extract " + archive.getName(), e.getCause());
+                }
+            } finally {
+                executor.shutdownNow();
             }
+        } finally {
+            zipFile.close();
         }
     }
 
@@ -77,6 +183,41 @@ public class ZipExtract implements Runnable {
         return true;
     }
 
+    private void writeEntry(ZipFile zipFile, ZipEntry entry) throws IOException {
+        File path = new File(getDestination(), entry.getName());
+        path.getParentFile().mkdirs();
+
+        InputStream is = zipFile.getInputStream(entry);
+        RandomAccessFile raf = null;
+
+        try {
+            raf = new RandomAccessFile(path, "rw");
+            long size = entry.getSize();
+            if (size >= 0) {
+                raf.setLength(size);
+            }
+
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long written = 0;
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                raf.write(buffer, 0, len);
+                written += len;
+            }
+
+            if (written != size) {
+                raf.setLength(written);
+            }
+        } finally {
+            closeQuietly(is);
+            if (raf != null) {
+                raf.close();
+            }
+        }
+
+        extracted.incrementAndGet();
+    }
+
     private void writeEntry(ZipInputStream zis, File path) throws IOException {
         FileOutputStream fos = null;
         BufferedOutputStream bos = null;
@@ -93,6 +234,18 @@ public class ZipExtract implements Runnable {
         }
     }
 
+    @Override
+    public double getProgress() {
+        int total = this.total;
+        return total > 0 ? extracted.get() / (double) total : -1;
+    }
+
+    @Override
+    public String getStatus() {
+        String name = archive != null ? archive.getName() : destination.getName();
+        return SharedLocale.tr("installer.extractingArchive", name, extracted.get(), Math.max(0, total));
+    }
+
     @Override
     public String toString() {
         return destination.getName();
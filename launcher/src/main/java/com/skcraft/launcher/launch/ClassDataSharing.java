@@ -0,0 +1,237 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.skcraft.launcher.Instance;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Manages an application class data sharing (AppCDS) archive for an
+ * instance, which lets the game JVM map pre-parsed and pre-verified classes
+ * instead of loading them from the class path on every launch.
+ * </p>
+ * On the first launch with a supported JVM, the game records the list of
+ * classes that it loads. Once the game exits, {@link #createArchive()} dumps
+ * those classes into a shared archive that later launches use. The archive
+ * is named after a fingerprint of the class path and the JVM, so it is
+ * discarded when either of them changes.
+ */
+@Log
+public class ClassDataSharing {
+
+    private static final int MIN_JAVA_VERSION = 10;
+    private static final long DUMP_TIMEOUT = 5;
+
+    private final File dir;
+    private final JavaRuntime runtime;
+    private final File javaPath;
+    private final String classPath;
+    @Getter private final int javaVersion;
+    private String fingerprint;
+
+    /**
+     * Create a new instance.
+     *
+     * @param dir the directory to store the class list and archive in
+     * @param runtime the probed runtime that launches the game
+     * @param classPath the class path used to launch the game
+     */
+    public ClassDataSharing(@NonNull File dir, @NonNull JavaRuntime runtime, @NonNull String classPath) {
+        this.dir = dir;
+        this.runtime = runtime;
+        this.javaPath = new File(runtime.getPath());
+        this.classPath = classPath;
+        this.javaVersion = runtime.getMajorVersion();
+    }
+
+    /**
+     * Get the directory where the class data sharing files of an instance
+     * are stored.
+     *
+     * @param instance the instance
+     * @return the directory, which may not exist
+     */
+    public static File getDir(Instance instance) {
+        return new File(instance.getDir(), "cds");
+    }
+
+    /**
+     * Check whether the JVM supports application class data sharing.
+     *
+     * @return true if supported
+     */
+    public boolean isSupported() {
+        return javaVersion >= MIN_JAVA_VERSION
+                && runtime.supportsFlag("SharedArchiveFile") && runtime.supportsFlag("DumpLoadedClassList");
+    }
+
+    /**
+     * Add the flags that either use the existing archive or record the
+     * list of loaded classes for a new one.
+     *
+     * @param builder the process builder
+     * @throws IOException on I/O error
+     */
+    public void configure(JavaProcessBuilder builder) throws IOException {
+        if (!isSupported()) {
+            log.info("Class data sharing requires Java " + MIN_JAVA_VERSION + "+ with AppCDS (found " + javaVersion + ")");
+            return;
+        }
+
+        fingerprint = createFingerprint();
+        dir.mkdirs();
+        removeStale();
+
+        List<String> flags = builder.getFlags();
+        File archive = getArchiveFile();
+
+        if (getFailedFile().exists()) {
+            log.info("Not using class data sharing because the archive could not be created previously");
+        } else if (archive.exists()) {
+            log.info("Using class data sharing archive " + archive.getAbsolutePath());
+            addCommonFlags(flags);
+            flags.add("-XX:SharedArchiveFile=" + archive.getAbsolutePath());
+            flags.add("-Xshare:auto");
+        } else {
+            log.info("Recording loaded classes for class data sharing to " + getClassListFile().getAbsolutePath());
+            addCommonFlags(flags);
+            flags.add("-XX:DumpLoadedClassList=" + getClassListFile().getAbsolutePath());
+        }
+    }
+
+    /**
+     * Create the shared archive from a class list recorded during the last
+     * launch, if there is one. This runs the JVM to dump the archive, so it
+     * should be called once the game has exited and off the event thread.
+     */
+    public void createArchive() {
+        if (fingerprint == null) {
+            return;
+        }
+
+        File classList = getClassListFile();
+        File archive = getArchiveFile();
+        if (archive.exists() || classList.length() == 0) {
+            return;
+        }
+
+        File tempFile = new File(dir, fingerprint + ".jsa.tmp");
+        File outputFile = new File(dir, fingerprint + ".log");
+        List<String> command = new ArrayList<String>();
+        command.add(javaPath.getAbsolutePath());
+        addCommonFlags(command);
+        command.add("-Xshare:dump");
+        command.add("-XX:SharedClassListFile=" + classList.getAbsolutePath());
+        command.add("-XX:SharedArchiveFile=" + tempFile.getAbsolutePath());
+        command.add("-cp");
+        command.add(classPath);
+
+        log.info("Creating class data sharing archive " + archive.getAbsolutePath() + "...");
+
+        try {
+            // The output goes to a file so that nothing has to read it while waiting with the deadline
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            processBuilder.redirectOutput(outputFile);
+            Process process = processBuilder.start();
+
+            if (!process.waitFor(DUMP_TIMEOUT, TimeUnit.MINUTES)) {
+                process.destroyForcibly();
+                throw new IOException("Timed out while creating the archive");
+            }
+
+            if (process.exitValue() != 0 || !tempFile.exists()) {
+                throw new IOException("The JVM exited with code " + process.exitValue() + ":\n"
+                        + Files.toString(outputFile, Charsets.UTF_8));
+            }
+
+            if (!tempFile.renameTo(archive)) {
+                throw new IOException("Failed to rename " + tempFile + " to " + archive);
+            }
+
+            log.info("Created class data sharing archive " + archive.getAbsolutePath());
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to create class data sharing archive", e);
+            markFailed();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            tempFile.delete();
+            outputFile.delete();
+            classList.delete();
+        }
+    }
+
+    private void addCommonFlags(List<String> flags) {
+        // Java 10 needs AppCDS to be unlocked; later versions removed the flag
+        if (runtime.supportsFlag("UseAppCDS")) {
+            flags.add("-XX:+UseAppCDS");
+        }
+    }
+
+    private void markFailed() {
+        try {
+            Files.touch(getFailedFile());
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to write " + getFailedFile(), e);
+        }
+    }
+
+    /**
+     * Delete the files of archives that no longer match the class path or
+     * the JVM.
+     */
+    private void removeStale() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (!file.getName().startsWith(fingerprint + ".")) {
+                    log.info("Removing stale class data sharing file " + file.getAbsolutePath());
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    private File getArchiveFile() {
+        return new File(dir, fingerprint + ".jsa");
+    }
+
+    private File getClassListFile() {
+        return new File(dir, fingerprint + ".classlist");
+    }
+
+    private File getFailedFile() {
+        return new File(dir, fingerprint + ".failed");
+    }
+
+    private String createFingerprint() {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putString(javaPath.getAbsolutePath(), Charsets.UTF_8);
+        hasher.putChar('\0');
+        hasher.putLong(javaPath.lastModified());
+        hasher.putLong(javaPath.length());
+        hasher.putInt(javaVersion);
+        hasher.putChar('\0');
+        hasher.putString(classPath, Charsets.UTF_8);
+        return hasher.hash().toString();
+    }
+
+}
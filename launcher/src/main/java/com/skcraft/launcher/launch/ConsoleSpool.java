@@ -0,0 +1,438 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.skcraft.launcher.Instance;
+import com.skcraft.launcher.swing.MessageLog;
+import com.skcraft.launcher.util.MultiPatternMatcher;
+import com.skcraft.launcher.util.SharedLocale;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.text.SimpleDateFormat;
+import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.logging.Level;
+import java.util.zip.GZIPOutputStream;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Writes the output of a process to a log file for the session, and only
+ * passes it on to a {@link MessageLog} while one is attached.
+ * </p>
+ * While no console is attached, output is copied to disk as raw bytes
+ * without being decoded, so a hidden console costs next to nothing. When
+ * a console is attached, the tail of the output that it has not seen yet
+ * is read back from the file before live output is passed on.
+ * </p>
+ * When the file becomes too large, it is moved aside and compressed in the
+ * background, and only the most recent parts are kept.
+ */
+@Log
+public class ConsoleSpool implements Closeable {
+
+    private static final int MAX_SESSIONS = 10;
+    private static final int MAX_SEGMENTS = 5;
+    private static final long MAX_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int TAIL_SIZE = 1024 * 1024;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final Charset CHARSET = Charset.defaultCharset();
+
+    private final File dir;
+    private final String name;
+    @Getter private final File file;
+    private final Executor executor;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private FileChannel channel;
+    private int segments;
+    private long written;
+    private long segmentStart;
+    private long seen;
+    private int pumps;
+    private MessageLog messageLog;
+
+    /**
+     * Create a new spool in the given directory, removing the files of old
+     * sessions.
+     *
+     * @param dir the directory
+     * @param executor the executor to compress old parts with
+     * @throws IOException thrown if the log file can't be created
+     */
+    public ConsoleSpool(@NonNull File dir, @NonNull Executor executor) throws IOException {
+        this.dir = dir;
+        this.name = "session-" + new SimpleDateFormat("yyyyMMdd-HHmmss").format(new Date());
+        this.file = new File(dir, name + ".log");
+        this.executor = executor;
+
+        dir.mkdirs();
+        removeOldSessions();
+        channel = new FileOutputStream(file).getChannel();
+    }
+
+    /**
+     * Get the directory where the output of an instance's sessions is kept.
+     *
+     * @param instance the instance
+     * @return the directory
+     */
+    public static File getDir(Instance instance) {
+        return new File(instance.getDir(), "console");
+    }
+
+    /**
+     * Copy an input stream to the spool in a separate daemon thread. The
+     * spool is closed once every consumed stream has ended.
+     *
+     * @param in the stream
+     */
+    public void consume(@NonNull InputStream in) {
+        consume(in, null);
+    }
+
+    /**
+     * Copy an input stream to the spool in a separate daemon thread, and
+     * pass the raw output to a scanner as well. The spool is closed once
+     * every consumed stream has ended.
+     *
+     * @param in the stream
+     * @param scanner the scanner, or null
+     */
+    public synchronized void consume(@NonNull InputStream in, MultiPatternMatcher.Scanner scanner) {
+        pumps++;
+        Thread thread = new Thread(new Pump(in, scanner), "Console spool");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Wait for every consumed stream to end, which happens shortly after
+     * the process exits.
+     *
+     * @param timeout the maximum time to wait in milliseconds
+     * @throws InterruptedException thrown if interrupted
+     */
+    public synchronized void awaitEnd(long timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout;
+        long remaining;
+        while (pumps > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+            wait(remaining);
+        }
+    }
+
+    /**
+     * Start passing output to the given message log, after first showing
+     * the recent output that it has not seen yet.
+     *
+     * @param messageLog the message log
+     */
+    public synchronized void attach(@NonNull MessageLog messageLog) {
+        if (this.messageLog != null) {
+            return;
+        }
+
+        try {
+            flush();
+            showTail(messageLog);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to read " + file.getAbsolutePath(), e);
+        }
+
+        seen = written;
+        this.messageLog = messageLog;
+    }
+
+    /**
+     * Stop passing output to the message log.
+     */
+    public synchronized void detach() {
+        if (messageLog != null) {
+            messageLog = null;
+            // Buffered output has already been forwarded, so it counts as seen too
+            seen = written + buffer.position();
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                flush();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to write " + file.getAbsolutePath(), e);
+            }
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+            channel = null;
+        }
+    }
+
+    /**
+     * Write data to the log file.
+     *
+     * @param data the data
+     * @param len the length of the data
+     * @param more true if more data is immediately available
+     * @return true if a message log was attached when the data was written
+     * @throws IOException on I/O error
+     */
+    private synchronized boolean write(byte[] data, int len, boolean more) throws IOException {
+        if (channel == null) {
+            return messageLog != null;
+        }
+
+        if (written - segmentStart + buffer.position() + len > MAX_SEGMENT_SIZE) {
+            rotate();
+        }
+
+        if (len > buffer.remaining()) {
+            flush();
+        }
+
+        if (len > buffer.remaining()) {
+            channel.write(ByteBuffer.wrap(data, 0, len));
+            written += len;
+        } else {
+            buffer.put(data, 0, len);
+        }
+
+        // Write out once the process has gone quiet
+        if (!more) {
+            flush();
+        }
+
+        return messageLog != null;
+    }
+
+    private void flush() throws IOException {
+        if (channel == null || buffer.position() == 0) {
+            return;
+        }
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void rotate() throws IOException {
+        flush();
+        channel.close();
+        channel = null;
+
+        final File segment = new File(dir, name + "." + (segments + 1) + ".log");
+        if (!file.renameTo(segment)) {
+            // Keep appending to the same file rather than losing output
+            log.warning("Failed to move " + file.getAbsolutePath());
+            channel = new FileOutputStream(file, true).getChannel();
+            return;
+        }
+
+        segments++;
+        channel = new FileOutputStream(file).getChannel();
+        segmentStart = written;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                compress(segment);
+                removeOldSegments();
+            }
+        });
+    }
+
+    private void showTail(MessageLog messageLog) throws IOException {
+        long from = Math.max(Math.max(seen, written - TAIL_SIZE), segmentStart);
+        int length = (int) (written - from);
+        if (length <= 0) {
+            return;
+        }
+
+        byte[] data = new byte[length];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.seek(from - segmentStart);
+            raf.readFully(data);
+        } finally {
+            raf.close();
+        }
+
+        int start = 0;
+        if (from > seen) {
+            // Start at a whole line if the earlier output is being skipped
+            while (start < length && data[start] != '\n') {
+                start++;
+            }
+            start = Math.min(length, start + 1);
+            messageLog.log(SharedLocale.tr("console.spoolTail", file.getAbsolutePath()), messageLog.asHighlighted());
+        }
+
+        messageLog.log(new String(data, start, length - start, CHARSET), null);
+    }
+
+    private synchronized void forward(String text) {
+        if (messageLog != null) {
+            messageLog.log(text, null);
+        }
+    }
+
+    private synchronized void pumpFinished() {
+        if (--pumps == 0) {
+            close();
+            notifyAll();
+        }
+    }
+
+    private void compress(File segment) {
+        File compressed = new File(segment.getPath() + ".gz");
+        InputStream in = null;
+        OutputStream out = null;
+        try {
+            in = new FileInputStream(segment);
+            out = new GZIPOutputStream(new FileOutputStream(compressed));
+            byte[] data = new byte[BUFFER_SIZE];
+            int len;
+            while ((len = in.read(data)) != -1) {
+                out.write(data, 0, len);
+            }
+            out.close();
+            in.close();
+            segment.delete();
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to compress " + segment.getAbsolutePath(), e);
+            compressed.delete();
+        } finally {
+            closeQuietly(in);
+            closeQuietly(out);
+        }
+    }
+
+    private void removeOldSegments() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        for (File f : files) {
+            String fileName = f.getName();
+            if (fileName.startsWith(name + ".") && fileName.endsWith(".log.gz")) {
+                try {
+                    int number = Integer.parseInt(fileName.substring(name.length() + 1, fileName.length() - 7));
+                    if (number <= segments - MAX_SEGMENTS) {
+                        f.delete();
+                    }
+                } catch (NumberFormatException ignored) {
+                }
+            }
+        }
+    }
+
+    private void removeOldSessions() {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+
+        SortedSet<String> sessions = new TreeSet<String>();
+        for (File f : files) {
+            String fileName = f.getName();
+            if (fileName.startsWith("session-")) {
+                sessions.add(fileName.substring(0, fileName.indexOf('.') != -1 ? fileName.indexOf('.') : fileName.length()));
+            }
+        }
+
+        // Keep room for the new session
+        List<String> old = new ArrayList<String>(sessions);
+        old = old.subList(0, Math.max(0, old.size() - (MAX_SESSIONS - 1)));
+
+        for (File f : files) {
+            String fileName = f.getName();
+            for (String session : old) {
+                if (fileName.startsWith(session + ".")) {
+                    f.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies a stream to the spool, decoding it only while a message log
+     * is attached.
+     */
+    private class Pump implements Runnable {
+        private final InputStream in;
+        private final MultiPatternMatcher.Scanner scanner;
+        private final CharsetDecoder decoder = CHARSET.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        private final ByteBuffer input = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CharBuffer output = CharBuffer.allocate(BUFFER_SIZE);
+
+        private Pump(InputStream in, MultiPatternMatcher.Scanner scanner) {
+            this.in = in;
+            this.scanner = scanner;
+        }
+
+        @Override
+        public void run() {
+            byte[] data = new byte[BUFFER_SIZE];
+            try {
+                int len;
+                while ((len = in.read(data)) != -1) {
+                    if (scanner != null) {
+                        scanner.feed(data, 0, len);
+                    }
+
+                    if (write(data, len, in.available() > 0)) {
+                        decode(data, len);
+                    } else if (input.position() > 0) {
+                        // Partial characters from before the detach are stale
+                        input.clear();
+                        decoder.reset();
+                    }
+                }
+            } catch (IOException e) {
+                log.log(Level.FINE, "Failed to read process output", e);
+            } finally {
+                closeQuietly(in);
+                pumpFinished();
+            }
+        }
+
+        private void decode(byte[] data, int len) {
+            int offset = 0;
+            while (offset < len) {
+                int count = Math.min(input.remaining(), len - offset);
+                input.put(data, offset, count);
+                offset += count;
+
+                input.flip();
+                decoder.decode(input, output, false);
+                input.compact();
+
+                output.flip();
+                if (output.hasRemaining()) {
+                    forward(output.toString());
+                }
+                output.clear();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.google.common.io.Resources;
+import com.skcraft.launcher.persistence.Persistence;
+import com.skcraft.launcher.util.MultiPatternMatcher;
+import com.skcraft.launcher.util.SharedLocale;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.net.URL;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Recognizes known failures in the output of the game using the signatures
+ * in <code>crash_signatures.json</code>.
+ * </p>
+ * The signatures are compiled into one {@link MultiPatternMatcher} the
+ * first time they are needed. Each stream of output gets its own scanner,
+ * and each signature is reported at most once per session.
+ */
+@Log
+public class CrashDetector {
+
+    private static final String SIGNATURES_PATH = "/com/skcraft/launcher/crash_signatures.json";
+    private static Compiled defaultSignatures;
+
+    private final Compiled compiled;
+    private final Set<String> found = new HashSet<String>();
+    private final List<CrashDiagnosis> diagnoses = new ArrayList<CrashDiagnosis>();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+    /**
+     * Create a new detector using the signatures that come with the launcher.
+     */
+    public CrashDetector() {
+        this.compiled = getDefaultSignatures();
+    }
+
+    /**
+     * Create a new detector.
+     *
+     * @param signatures the signatures
+     */
+    public CrashDetector(@NonNull CrashSignatures signatures) {
+        this.compiled = new Compiled(signatures);
+    }
+
+    /**
+     * Add a listener that is called, from the thread reading the output,
+     * when a failure is recognized.
+     *
+     * @param listener the listener
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Create a scanner for one stream of output.
+     *
+     * @return the scanner
+     */
+    public MultiPatternMatcher.Scanner newScanner() {
+        return compiled.matcher.newScanner(new MultiPatternMatcher.Listener() {
+            @Override
+            public void patternFound(int pattern) {
+                diagnose(compiled.signatures[pattern], compiled.patterns[pattern]);
+            }
+        });
+    }
+
+    /**
+     * Get the failures that have been recognized so far.
+     *
+     * @return a list of diagnoses
+     */
+    public synchronized List<CrashDiagnosis> getDiagnoses() {
+        return new ArrayList<CrashDiagnosis>(diagnoses);
+    }
+
+    private void diagnose(CrashSignature signature, String pattern) {
+        CrashDiagnosis diagnosis;
+
+        synchronized (this) {
+            if (!found.add(signature.getId())) {
+                return;
+            }
+
+            diagnosis = new CrashDiagnosis();
+            diagnosis.setId(signature.getId());
+            diagnosis.setTitle(SharedLocale.tr("crash." + signature.getId()));
+            diagnosis.setAdvice(SharedLocale.tr("crash." + signature.getId() + ".advice"));
+            diagnosis.setPattern(pattern);
+            diagnosis.setTime(new Date());
+            diagnoses.add(diagnosis);
+        }
+
+        log.info("Recognized a known failure in the game output: " + signature.getId() + " (" + pattern + ")");
+
+        for (Listener listener : listeners) {
+            listener.crashDiagnosed(diagnosis);
+        }
+    }
+
+    private static synchronized Compiled getDefaultSignatures() {
+        if (defaultSignatures == null) {
+            URL url = CrashDetector.class.getResource(SIGNATURES_PATH);
+            CrashSignatures signatures = url != null
+                    ? Persistence.read(Resources.asByteSource(url), CrashSignatures.class, false)
+                    : new CrashSignatures();
+            defaultSignatures = new Compiled(signatures);
+        }
+
+        return defaultSignatures;
+    }
+
+    /**
+     * Called when a failure is recognized.
+     */
+    public interface Listener {
+        /**
+         * Called when a failure is recognized.
+         *
+         * @param diagnosis the diagnosis
+         */
+        void crashDiagnosed(CrashDiagnosis diagnosis);
+    }
+
+    /**
+     * Signatures compiled into a matcher.
+     */
+    private static class Compiled {
+        private final CrashSignature[] signatures;
+        private final String[] patterns;
+        private final MultiPatternMatcher matcher;
+
+        private Compiled(CrashSignatures source) {
+            List<CrashSignature> signatures = new ArrayList<CrashSignature>();
+            List<String> patterns = new ArrayList<String>();
+
+            for (CrashSignature signature : source.getSignatures()) {
+                for (String pattern : signature.getPatterns()) {
+                    signatures.add(signature);
+                    patterns.add(pattern);
+                }
+            }
+
+            this.signatures = signatures.toArray(new CrashSignature[signatures.size()]);
+            this.patterns = patterns.toArray(new String[patterns.size()]);
+            this.matcher = new MultiPatternMatcher(patterns);
+        }
+    }
+
+}
@@ -0,0 +1,27 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.Date;
+
+/**
+ * A known failure that was recognized in the output of the game.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CrashDiagnosis {
+
+    private String id;
+    private String title;
+    private String advice;
+    private String pattern;
+    private Date time;
+
+}
@@ -0,0 +1,26 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A known failure of the game, recognized by any one of a set of strings
+ * appearing in its output.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CrashSignature {
+
+    private String id;
+    private List<String> patterns = new ArrayList<String>();
+
+}
@@ -0,0 +1,24 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The list of crash signatures in <code>crash_signatures.json</code>.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class CrashSignatures {
+
+    private List<CrashSignature> signatures = new ArrayList<CrashSignature>();
+
+}
@@ -0,0 +1,204 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.skcraft.launcher.Instance;
+import com.skcraft.launcher.Launcher;
+import com.skcraft.launcher.persistence.Persistence;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Level;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Reads the files that launching an instance will need (the game jar,
+ * libraries and mods) so that they are in the operating system's page cache
+ * by the time the game starts, which mostly helps cold launches from slow
+ * disks.
+ * </p>
+ * Prefetching happens on a single low priority thread while the user is
+ * still choosing an instance or logging in. Selecting another instance
+ * cancels the current prefetch, and no more than the configured budget is
+ * read for each instance.
+ */
+@Log
+public class InstancePrefetcher {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final long REPEAT_INTERVAL = 1000 * 60 * 5;
+
+    private final Launcher launcher;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder()
+                    .setNameFormat("Instance prefetcher")
+                    .setDaemon(true)
+                    .setPriority(Thread.MIN_PRIORITY)
+                    .build());
+    private Future<?> current;
+    private File lastDir;
+    private long lastCompleted;
+
+    /**
+     * Create a new prefetcher.
+     *
+     * @param launcher the launcher
+     */
+    public InstancePrefetcher(@NonNull Launcher launcher) {
+        this.launcher = launcher;
+    }
+
+    /**
+     * Start prefetching the files of the given instance, cancelling any
+     * prefetch that is still running for another instance.
+     *
+     * @param instance the instance
+     */
+    public synchronized void prefetch(@NonNull final Instance instance) {
+        final File dir = instance.getDir();
+        final long budget = launcher.getConfig().getPrefetchSize() * 1024L * 1024L;
+
+        if (budget <= 0 || !instance.isInstalled()) {
+            cancel();
+            return;
+        }
+
+        // Don't read the same files again while they are likely still cached
+        if (dir.equals(lastDir) && (!current.isDone()
+                || System.currentTimeMillis() - lastCompleted < REPEAT_INTERVAL)) {
+            return;
+        }
+
+        cancel();
+        lastDir = dir;
+        lastCompleted = 0;
+
+        current = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                long read = readAll(collectFiles(instance), budget);
+                if (!Thread.currentThread().isInterrupted()) {
+                    log.info("Prefetched " + (read / 1024 / 1024) + " MB for " + dir.getName());
+                    completed(dir);
+                }
+            }
+        });
+    }
+
+    /**
+     * Cancel the current prefetch, if any.
+     */
+    public synchronized void cancel() {
+        if (current != null) {
+            current.cancel(true);
+            current = null;
+        }
+        lastDir = null;
+    }
+
+    private synchronized void completed(File dir) {
+        if (dir.equals(lastDir)) {
+            lastCompleted = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Get the files to read, in the order that the game loads them.
+     *
+     * @param instance the instance
+     * @return a list of files
+     */
+    private List<File> collectFiles(Instance instance) {
+        List<File> files = new ArrayList<File>();
+
+        LaunchPlan plan = Persistence.read(LaunchPlan.getPath(instance), LaunchPlan.class, true);
+        if (plan != null) {
+            if (plan.getVersionId() != null) {
+                files.add(launcher.getJarPath(plan.getVersionId()));
+            }
+            for (String path : plan.getClassPath()) {
+                files.add(new File(path));
+            }
+            if (plan.getNativesDir() != null) {
+                addDirectory(files, new File(plan.getNativesDir()));
+            }
+        }
+
+        files.add(instance.getCustomJarPath());
+        addDirectory(files, new File(instance.getContentDir(), "mods"));
+        return files;
+    }
+
+    private static void addDirectory(List<File> files, File dir) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    addDirectory(files, child);
+                } else {
+                    files.add(child);
+                }
+            }
+        }
+    }
+
+    /**
+     * Read files sequentially until the budget is used up or the thread is
+     * interrupted.
+     *
+     * @param files the files
+     * @param budget the maximum number of bytes to read
+     * @return the number of bytes read
+     */
+    private static long readAll(List<File> files, long budget) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        long read = 0;
+
+        for (File file : files) {
+            if (read >= budget || Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            if (!file.isFile()) {
+                continue;
+            }
+
+            FileInputStream fis = null;
+            try {
+                fis = new FileInputStream(file);
+                FileChannel channel = fis.getChannel();
+                int len;
+                while (read < budget && !Thread.currentThread().isInterrupted()) {
+                    buffer.clear();
+                    if ((len = channel.read(buffer)) == -1) {
+                        break;
+                    }
+                    read += len;
+                }
+            } catch (IOException e) {
+                log.log(Level.FINE, "Failed to prefetch " + file.getAbsolutePath(), e);
+            } finally {
+                closeQuietly(fis);
+            }
+        }
+
+        return read;
+    }
+
+}
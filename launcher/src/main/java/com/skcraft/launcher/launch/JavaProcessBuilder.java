@@ -27,10 +27,11 @@ public class JavaProcessBuilder {
 
     private static final Pattern argsPattern = Pattern.compile("(?:([^\"]\\S*)|\"(.+?)\")\\s*");
 
-    @Getter @Setter private File jvmPath = JavaRuntimeFinder.findBestJavaPath();
+    @Getter @Setter private File jvmPath;
     @Getter @Setter private int minMemory;
     @Getter @Setter private int maxMemory;
     @Getter @Setter private int permGen;
+    @Getter @Setter private JavaRuntime runtime;
 
     @Getter private final List<File> classPath = new ArrayList<File>();
     @Getter private final List<String> flags = new ArrayList<String>();
@@ -40,11 +41,12 @@ public class JavaProcessBuilder {
     public void tryJvmPath(File path) throws IOException {
         // Try the parent directory
         if (!path.exists()) {
-            path = JavaRuntimeFinder.findBestJavaPath();
-            if (!path.exists()) {
+            File bestPath = JavaRuntimeFinder.findBestJavaPath();
+            if (bestPath == null || !bestPath.exists()) {
                 throw new IOException(
                     "The configured Java runtime path '" + path + "' doesn't exist.");
             }
+            path = bestPath;
             if (path.isFile()) {
                 path = path.getParentFile();
             }
@@ -113,7 +115,8 @@ public class JavaProcessBuilder {
             command.add("-Xmx" + String.valueOf(maxMemory) + "M");
         }
 
-        if (permGen > 0) {
+        // MaxPermSize was removed in Java 8 and newer versions refuse to start with it
+        if (permGen > 0 && (runtime == null || runtime.supportsFlag("MaxPermSize"))) {
             command.add("-XX:MaxPermSize=" + String.valueOf(permGen) + "M");
         }
 
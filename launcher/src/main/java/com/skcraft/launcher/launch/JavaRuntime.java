@@ -0,0 +1,134 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.io.File;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The result of probing a Java runtime: its version, bitness, how much
+ * heap it can address and which of the JVM flags that the launcher uses
+ * it accepts.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class JavaRuntime implements Comparable<JavaRuntime> {
+
+    private String path;
+    private long lastModified;
+    private String version;
+    private int majorVersion;
+    private String vendor;
+    private int bits;
+    private int maxHeap;
+    private Set<String> flags = new HashSet<String>();
+
+    /**
+     * Get the directory containing the java executable.
+     *
+     * @return the directory
+     */
+    @JsonIgnore
+    public File getBinDir() {
+        return new File(path).getParentFile();
+    }
+
+    /**
+     * Check whether this is a 64-bit runtime.
+     *
+     * @return true if 64-bit
+     */
+    @JsonIgnore
+    public boolean is64Bit() {
+        return bits == 64;
+    }
+
+    /**
+     * Check whether the runtime accepts the given -XX flag.
+     *
+     * @param name the name of the flag, such as "MaxPermSize"
+     * @return true if supported
+     */
+    public boolean supportsFlag(String name) {
+        return flags.contains(name);
+    }
+
+    /**
+     * Check whether the runtime limits the heap size.
+     *
+     * @return true if {@link #getMaxHeap()} is a limit
+     */
+    @JsonIgnore
+    public boolean hasMaxHeap() {
+        return maxHeap > 0;
+    }
+
+    /**
+     * Runtimes sort with 64-bit runtimes first, then by newest version.
+     */
+    @Override
+    public int compareTo(JavaRuntime o) {
+        if (is64Bit() != o.is64Bit()) {
+            return is64Bit() ? -1 : 1;
+        }
+        if (majorVersion != o.majorVersion) {
+            return majorVersion > o.majorVersion ? -1 : 1;
+        }
+        return compareVersions(o.version, version);
+    }
+
+    /**
+     * Get the major version from a version string such as "1.8.0_392" or
+     * "17.0.9".
+     *
+     * @param version the version string
+     * @return the major version, or -1
+     */
+    static int parseMajorVersion(String version) {
+        String[] parts = version.split("[._+-]");
+        try {
+            int major = Integer.parseInt(parts[0]);
+            if (major == 1 && parts.length > 1) {
+                major = Integer.parseInt(parts[1]);
+            }
+            return major;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static int compareVersions(String a, String b) {
+        String[] first = a != null ? a.split("[._+-]") : new String[0];
+        String[] second = b != null ? b.split("[._+-]") : new String[0];
+        int min = Math.min(first.length, second.length);
+
+        for (int i = 0; i < min; i++) {
+            int x, y;
+            try {
+                x = Integer.parseInt(first[i]);
+                y = Integer.parseInt(second[i]);
+            } catch (NumberFormatException e) {
+                int result = first[i].compareTo(second[i]);
+                if (result != 0) {
+                    return result;
+                }
+                continue;
+            }
+            if (x != y) {
+                return x < y ? -1 : 1;
+            }
+        }
+
+        return first.length - second.length;
+    }
+
+}
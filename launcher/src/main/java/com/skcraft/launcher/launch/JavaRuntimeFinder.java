@@ -6,21 +6,63 @@
 
 package com.skcraft.launcher.launch;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import com.skcraft.launcher.Launcher;
+import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.util.Environment;
 import com.skcraft.launcher.util.Platform;
 import com.skcraft.launcher.util.WinRegistry;
+import lombok.Data;
+import lombok.extern.java.Log;
 
 import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * Finds the best Java runtime to use.
+ * </p>
+ * Runtimes are discovered from the usual install locations of each
+ * platform, <code>JAVA_HOME</code>, the <code>PATH</code> and runtimes
+ * bundled with the launcher. Each runtime is started once to find out what
+ * it supports, and the result is cached on disk until the executable
+ * changes.
  */
+@Log
 public final class JavaRuntimeFinder {
 
+    private static final Pattern propertyPattern = Pattern.compile("^\\s+([\\w.]+) = (.*)$");
+    private static final Pattern flagPattern = Pattern.compile("^\\s*\\S+\\s+(\\w+)\\s+:?=");
+    private static final Pattern versionPattern = Pattern.compile("version \"([^\"]+)\"");
+    private static final int[] HEAP_SIZES = { 2048, 1536, 1280, 1024, 768, 512 };
+    private static final long PROBE_TIMEOUT = 15;
+
+    /**
+     * The flags that the launcher may pass and that therefore need to be
+     * checked for support.
+     */
+    private static final Set<String> KNOWN_FLAGS = new HashSet<String>(Arrays.asList(
+            "MaxPermSize", "UseParNewGC", "UseConcMarkSweepGC", "UseG1GC", "UseParallelGC",
+            "UseShenandoahGC", "UseZGC", "ZGenerational", "G1HeapRegionSize", "MaxGCPauseMillis",
+            "ParallelGCThreads", "ConcGCThreads", "UseStringDeduplication", "UseLargePages",
+            "UseTransparentHugePages", "SharedArchiveFile", "DumpLoadedClassList", "UseAppCDS"));
+
+    private static final Map<String, FutureTask<JavaRuntime>> probes = new HashMap<String, FutureTask<JavaRuntime>>();
+    private static final Object probeCacheLock = new Object();
+    private static List<JavaRuntime> runtimes;
+    private static ProbeCache probeCache;
+
     private JavaRuntimeFinder() {
     }
 
@@ -30,100 +72,442 @@ public final class JavaRuntimeFinder {
      * @return the JVM location, or null
      */
     public static File findBestJavaPath() {
-        if (Environment.getInstance().getPlatform() != Platform.WINDOWS) {
+        JavaRuntime runtime = findBestRuntime();
+        return runtime != null ? runtime.getBinDir() : null;
+    }
+
+    /**
+     * Return the best runtime, which is the newest 64-bit runtime if there
+     * is one.
+     *
+     * @return the runtime, or null
+     */
+    public static JavaRuntime findBestRuntime() {
+        List<JavaRuntime> runtimes = findRuntimes();
+        return runtimes.isEmpty() ? null : runtimes.get(0);
+    }
+
+    /**
+     * Get all the runtimes that were found, with the best runtime first.
+     *
+     * @return a list of runtimes
+     */
+    public static synchronized List<JavaRuntime> findRuntimes() {
+        if (runtimes == null) {
+            Set<File> executables = new LinkedHashSet<File>();
+            for (File home : getCandidateHomes()) {
+                File executable = findExecutable(new File(home, "bin"));
+                if (executable != null) {
+                    executables.add(canonicalize(executable));
+                }
+            }
+
+            File onPath = findOnPath();
+            if (onPath != null) {
+                executables.add(onPath);
+            }
+
+            List<JavaRuntime> found = new ArrayList<JavaRuntime>();
+            for (File executable : executables) {
+                JavaRuntime runtime = getRuntimeForExecutable(executable);
+                if (runtime != null) {
+                    found.add(runtime);
+                }
+            }
+
+            Collections.sort(found);
+            runtimes = Collections.unmodifiableList(found);
+            log.info("Found Java runtimes: " + runtimes);
+        }
+
+        return runtimes;
+    }
+
+    /**
+     * Get the runtime at the given path.
+     *
+     * @param path the java executable, the directory containing it, the
+     *             runtime's home directory, or null to use the runtime on the
+     *             <code>PATH</code>
+     * @return the runtime, or null if it could not be found or probed
+     */
+    public static JavaRuntime getRuntime(File path) {
+        File executable;
+        if (path == null) {
+            executable = findOnPath();
+        } else if (path.isFile()) {
+            executable = path;
+        } else {
+            executable = findExecutable(path);
+            if (executable == null) {
+                executable = findExecutable(new File(path, "bin"));
+            }
+        }
+
+        return executable != null ? getRuntimeForExecutable(canonicalize(executable)) : null;
+    }
+
+    /**
+     * Get the runtime of an executable, probing it if needed. Each
+     * executable is probed by one thread at a time, and other threads that
+     * need the same executable wait for that probe only.
+     *
+     * @param executable the java executable
+     * @return the runtime, or null if it could not be probed
+     */
+    private static JavaRuntime getRuntimeForExecutable(final File executable) {
+        String key = executable.getAbsolutePath();
+        FutureTask<JavaRuntime> task;
+        boolean owner = false;
+
+        synchronized (probes) {
+            task = probes.get(key);
+            if (task == null || (task.isDone() && !isCurrent(task, executable))) {
+                task = new FutureTask<JavaRuntime>(new Callable<JavaRuntime>() {
+                    @Override
+                    public JavaRuntime call() {
+                        return loadOrProbe(executable);
+                    }
+                });
+                probes.put(key, task);
+                owner = true;
+            }
+        }
+
+        if (owner) {
+            task.run();
+        }
+
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            log.log(Level.WARNING, "Failed to probe " + key, e.getCause());
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
             return null;
         }
-        
-        List<JREEntry> entries = new ArrayList<JREEntry>();
+    }
+
+    private static boolean isCurrent(FutureTask<JavaRuntime> task, File executable) {
         try {
-            getEntriesFromRegistry(entries, "SOFTWARE\\JavaSoft\\Java Runtime Environment");
-            getEntriesFromRegistry(entries, "SOFTWARE\\JavaSoft\\Java Development Kit");
-        } catch (Throwable ignored) {
+            JavaRuntime runtime = task.get();
+            return runtime != null && runtime.getLastModified() == executable.lastModified();
+        } catch (ExecutionException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static JavaRuntime loadOrProbe(File executable) {
+        String key = executable.getAbsolutePath();
+
+        synchronized (probeCacheLock) {
+            JavaRuntime runtime = getProbeCache().getRuntimes().get(key);
+            if (runtime != null && runtime.getLastModified() == executable.lastModified()) {
+                return runtime;
+            }
         }
-        Collections.sort(entries);
-        
-        if (entries.size() > 0) {
-            return new File(entries.get(0).dir, "bin");
+
+        JavaRuntime runtime;
+        try {
+            runtime = probe(executable);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to probe " + key, e);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         }
-        
-        return null;
+
+        if (runtime != null) {
+            synchronized (probeCacheLock) {
+                ProbeCache cache = getProbeCache();
+                cache.getRuntimes().put(key, runtime);
+                writeProbeCache(cache);
+            }
+        }
+
+        return runtime;
     }
-    
-    private static void getEntriesFromRegistry(List<JREEntry> entries, String basePath) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        List<String> subKeys = WinRegistry.readStringSubKeys(WinRegistry.HKEY_LOCAL_MACHINE, basePath);
-        for (String subKey : subKeys) {
-            JREEntry entry = getEntryFromRegistry(basePath, subKey);
-            if (entry != null) {
-                entries.add(entry);
-            }
-        }
-    }
-    
-    private static JREEntry getEntryFromRegistry(String basePath, String version) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
-        String regPath = basePath + "\\" + version;
-        String path = WinRegistry.readString(WinRegistry.HKEY_LOCAL_MACHINE, regPath, "JavaHome");
-        File dir = new File(path);
-        if (dir.exists() && new File(dir, "bin/java.exe").exists()) {
-            JREEntry entry = new JREEntry();
-            entry.dir = dir;
-            entry.version = version;
-            entry.is64Bit = guessIf64Bit(dir);
-            return entry;
-        } else {
+
+    /**
+     * Start the runtime to find out its version, bitness, maximum heap and
+     * supported flags.
+     *
+     * @param executable the java executable
+     * @return the runtime, or null if it does not appear to work
+     * @throws IOException on I/O error
+     * @throws InterruptedException on interruption
+     */
+    private static JavaRuntime probe(File executable) throws IOException, InterruptedException {
+        log.info("Probing Java runtime " + executable.getAbsolutePath() + "...");
+
+        JavaRuntime runtime = new JavaRuntime();
+        runtime.setPath(executable.getAbsolutePath());
+        runtime.setLastModified(executable.lastModified());
+
+        List<String> output = new ArrayList<String>();
+        if (run(executable, output, "-XshowSettings:properties", "-XX:+PrintFlagsFinal", "-version") != 0) {
+            // Java 6 and older don't support -XshowSettings
+            output.clear();
+            if (run(executable, output, "-version") != 0) {
+                return null;
+            }
+        }
+
+        Map<String, String> properties = new HashMap<String, String>();
+        for (String line : output) {
+            Matcher m = flagPattern.matcher(line);
+            if (m.find() && KNOWN_FLAGS.contains(m.group(1))) {
+                runtime.getFlags().add(m.group(1));
+                continue;
+            }
+
+            m = propertyPattern.matcher(line);
+            if (m.matches()) {
+                properties.put(m.group(1), m.group(2).trim());
+                continue;
+            }
+
+            m = versionPattern.matcher(line);
+            if (m.find() && runtime.getVersion() == null) {
+                runtime.setVersion(m.group(1));
+            }
+
+            if (line.contains("64-Bit")) {
+                runtime.setBits(64);
+            }
+        }
+
+        if (properties.containsKey("java.version")) {
+            runtime.setVersion(properties.get("java.version"));
+        }
+        if (runtime.getVersion() == null) {
             return null;
         }
+        runtime.setMajorVersion(JavaRuntime.parseMajorVersion(runtime.getVersion()));
+        runtime.setVendor(properties.get("java.vendor"));
+
+        String dataModel = properties.get("sun.arch.data.model");
+        if (dataModel != null) {
+            runtime.setBits("64".equals(dataModel) ? 64 : 32);
+        } else if (runtime.getBits() == 0) {
+            runtime.setBits(32);
+        }
+
+        // Java 6 and 7 accept MaxPermSize even when -XX:+PrintFlagsFinal was not available
+        if (runtime.getFlags().isEmpty() && runtime.getMajorVersion() < 8) {
+            runtime.getFlags().add("MaxPermSize");
+        }
+
+        if (!runtime.is64Bit()) {
+            runtime.setMaxHeap(probeMaxHeap(executable));
+        }
+
+        log.info("Probed " + runtime);
+        return runtime;
+    }
+
+    /**
+     * Find the largest heap that a 32-bit runtime can reserve.
+     */
+    private static int probeMaxHeap(File executable) throws IOException, InterruptedException {
+        List<String> output = new ArrayList<String>();
+        for (int size : HEAP_SIZES) {
+            output.clear();
+            if (run(executable, output, "-Xmx" + size + "M", "-version") == 0) {
+                return size;
+            }
+        }
+        return HEAP_SIZES[HEAP_SIZES.length - 1];
     }
-    
-    private static boolean guessIf64Bit(File path) {
-        String programFilesX86 = System.getenv("ProgramFiles(x86)");
-        return programFilesX86 == null || !path.toString().startsWith(new File(programFilesX86).toString());
-    }
-    
-    private static class JREEntry implements Comparable<JREEntry> {
-        private File dir;
-        private String version;
-        private boolean is64Bit;
-
-        @Override
-        public int compareTo(JREEntry o) {
-            if (is64Bit && !o.is64Bit) {
-                return -1;
-            } else if (!is64Bit && o.is64Bit) {
-                return 1;
-            }
-            
-            String[] a = version.split("[\\._]");
-            String[] b = o.version.split("[\\._]");
-            int min = Math.min(a.length, b.length);
-            
-            for (int i = 0; i < min; i++) {
-                int first, second;
-                
+
+    private static int run(File executable, List<String> output, String... args) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<String>();
+        command.add(executable.getAbsolutePath());
+        command.addAll(Arrays.asList(args));
+
+        // The output goes to a file so that nothing has to read it while waiting with the deadline
+        File outputFile = File.createTempFile("probe", ".log");
+        try {
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            processBuilder.redirectOutput(outputFile);
+            Process process = processBuilder.start();
+
+            if (!process.waitFor(PROBE_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IOException("Timed out while running " + command);
+            }
+
+            output.addAll(Files.readLines(outputFile, Charsets.UTF_8));
+            return process.exitValue();
+        } finally {
+            outputFile.delete();
+        }
+    }
+
+    /**
+     * Get the home directories of runtimes that may be installed.
+     *
+     * @return a list of directories
+     */
+    private static List<File> getCandidateHomes() {
+        List<File> homes = new ArrayList<File>();
+        File userHome = new File(System.getProperty("user.home"));
+
+        // Runtimes bundled with the launcher
+        if (Launcher.instance != null) {
+            File runtimeDir = new File(Launcher.instance.getBaseDir(), "runtime");
+            homes.add(runtimeDir);
+            addChildren(homes, runtimeDir, null);
+        }
+        if (Launcher.launcherJarFile != null) {
+            homes.add(new File(Launcher.launcherJarFile.getAbsoluteFile().getParentFile(), "jre"));
+        }
+
+        String javaHome = System.getenv("JAVA_HOME");
+        if (!Strings.isNullOrEmpty(javaHome)) {
+            homes.add(new File(javaHome));
+        }
+
+        switch (Environment.getInstance().getPlatform()) {
+            case WINDOWS:
                 try {
-                    first = Integer.parseInt(a[i]);
-                } catch (NumberFormatException e) {
-                    return -1;
+                    getEntriesFromRegistry(homes, "SOFTWARE\\JavaSoft\\Java Runtime Environment");
+                    getEntriesFromRegistry(homes, "SOFTWARE\\JavaSoft\\Java Development Kit");
+                    getEntriesFromRegistry(homes, "SOFTWARE\\JavaSoft\\JRE");
+                    getEntriesFromRegistry(homes, "SOFTWARE\\JavaSoft\\JDK");
+                } catch (Throwable ignored) {
                 }
-                
-                try {
-                    second = Integer.parseInt(b[i]);
-                } catch (NumberFormatException e) {
-                    return 1;
+                for (String variable : new String[] { "ProgramFiles", "ProgramFiles(x86)", "ProgramW6432" }) {
+                    String programFiles = System.getenv(variable);
+                    if (programFiles != null) {
+                        for (String vendor : new String[] { "Java", "Eclipse Adoptium", "AdoptOpenJDK", "Zulu", "Microsoft", "Amazon Corretto" }) {
+                            addChildren(homes, new File(programFiles, vendor), null);
+                        }
+                    }
+                }
+                break;
+            case MAC_OS_X:
+                addChildren(homes, new File("/Library/Java/JavaVirtualMachines"), "Contents/Home");
+                addChildren(homes, new File(userHome, "Library/Java/JavaVirtualMachines"), "Contents/Home");
+                addChildren(homes, new File("/System/Library/Java/JavaVirtualMachines"), "Contents/Home");
+                homes.add(new File("/Library/Internet Plug-Ins/JavaAppletPlugin.plugin/Contents/Home"));
+                addChildren(homes, new File(userHome, ".sdkman/candidates/java"), null);
+                break;
+            default:
+                addChildren(homes, new File("/usr/lib/jvm"), null);
+                addChildren(homes, new File("/usr/lib64/jvm"), null);
+                addChildren(homes, new File("/usr/java"), null);
+                addChildren(homes, new File("/opt/java"), null);
+                addChildren(homes, new File(userHome, ".sdkman/candidates/java"), null);
+                addChildren(homes, new File(userHome, ".jdks"), null);
+                break;
+        }
+
+        // The runtime that the launcher itself is running on
+        File currentHome = new File(System.getProperty("java.home"));
+        homes.add(currentHome);
+
+        return homes;
+    }
+
+    private static void addChildren(List<File> homes, File dir, String suffix) {
+        File[] children = dir.listFiles();
+        if (children != null) {
+            Arrays.sort(children);
+            for (File child : children) {
+                if (child.isDirectory()) {
+                    homes.add(suffix != null ? new File(child, suffix) : child);
                 }
-                
-                if (first > second) {
-                    return -1;
-                } else if (first < second) {
-                    return 1;
+            }
+        }
+    }
+
+    private static void getEntriesFromRegistry(List<File> homes, String basePath) throws IllegalArgumentException, IllegalAccessException, InvocationTargetException {
+        List<String> subKeys = WinRegistry.readStringSubKeys(WinRegistry.HKEY_LOCAL_MACHINE, basePath);
+        if (subKeys == null) {
+            return;
+        }
+        for (String subKey : subKeys) {
+            String path = WinRegistry.readString(WinRegistry.HKEY_LOCAL_MACHINE, basePath + "\\" + subKey, "JavaHome");
+            if (path != null) {
+                homes.add(new File(path));
+            }
+        }
+    }
+
+    /**
+     * Find the java executable in a directory.
+     *
+     * @param binDir the directory
+     * @return the executable, or null if there is none
+     */
+    static File findExecutable(File binDir) {
+        boolean windows = Environment.getInstance().getPlatform() == Platform.WINDOWS;
+        File file = new File(binDir, windows ? "java.exe" : "java");
+        return file.isFile() ? file : null;
+    }
+
+    private static File findOnPath() {
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String entry : path.split(File.pathSeparator)) {
+                File executable = findExecutable(new File(entry));
+                if (executable != null) {
+                    return canonicalize(executable);
                 }
             }
-            
-            if (a.length == b.length) {
-                return 0; // Same
+        }
+        return null;
+    }
+
+    /**
+     * Follow links such as /usr/bin/java -> /usr/lib/jvm/.../bin/java so
+     * that the same runtime is only probed once.
+     */
+    private static File canonicalize(File file) {
+        try {
+            return file.getCanonicalFile();
+        } catch (IOException e) {
+            return file.getAbsoluteFile();
+        }
+    }
+
+    private static ProbeCache getProbeCache() {
+        if (probeCache == null) {
+            File file = getProbeCacheFile();
+            probeCache = file != null ? Persistence.read(file, ProbeCache.class, true) : null;
+            if (probeCache == null) {
+                probeCache = new ProbeCache();
+            }
+        }
+        return probeCache;
+    }
+
+    private static void writeProbeCache(ProbeCache cache) {
+        File file = getProbeCacheFile();
+        if (file != null) {
+            try {
+                Persistence.write(file, cache);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to write " + file.getAbsolutePath(), e);
             }
-            
-            return a.length > b.length ? -1 : 1;
         }
     }
 
+    private static File getProbeCacheFile() {
+        return Launcher.instance != null ? new File(Launcher.instance.getBaseDir(), "runtimes.json") : null;
+    }
+
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class ProbeCache {
+        private Map<String, JavaRuntime> runtimes = new HashMap<String, JavaRuntime>();
+    }
+
 }
@@ -0,0 +1,265 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.skcraft.launcher.model.modpack.TuningProfile;
+import com.skcraft.launcher.util.Platform;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import static com.skcraft.launcher.model.modpack.TuningProfile.*;
+
+/**
+ * Picks garbage collector and memory flags for the game JVM from the
+ * probed runtime, the machine's cores and memory, the heap size and the
+ * size of the modpack.
+ * </p>
+ * The generated profile prefers a collector with short pauses so that
+ * collections don't show up as stutter in game. Flags that the runtime did
+ * not accept when it was probed are never emitted, and a collector is never
+ * chosen if the user or the modpack already picked one.
+ */
+@Log
+public class JvmTuning {
+
+    private static final long LARGE_PACK_SIZE = 200 * 1024 * 1024;
+    private static final int LARGE_PAGES_MIN_MEMORY = 16 * 1024;
+    private static final int LARGE_PAGES_MIN_HEAP = 4 * 1024;
+    private static final int MAX_PAUSE_MILLIS = 50;
+
+    @Getter @Setter private JavaRuntime runtime;
+    @Getter @Setter private Platform platform = Platform.UNKNOWN;
+    @Getter @Setter private int cores = Runtime.getRuntime().availableProcessors();
+    @Getter @Setter private int physicalMemory;
+    @Getter @Setter private int maxMemory;
+    @Getter @Setter private long packSize;
+
+    /**
+     * Generate a profile for the current settings.
+     *
+     * @return the profile
+     */
+    public TuningProfile createProfile() {
+        TuningProfile profile = new TuningProfile();
+        int version = getVersion();
+        boolean largePack = packSize >= LARGE_PACK_SIZE;
+
+        // Without knowing the runtime, any flag could stop the game from starting
+        profile.setEnabled(version >= 7);
+
+        if (cores < 2 || version < 8) {
+            // Java 7's G1 is not mature, and G1 needs spare cores for its concurrent work
+            profile.setCollector(version == 7 && cores >= 2 ? CMS : DEFAULT);
+        } else {
+            profile.setCollector(G1);
+        }
+
+        // Large packs allocate more large objects (texture atlases, registries)
+        int regionSize = Math.max(4, Math.min(32, Integer.highestOneBit(Math.max(1, maxMemory / 256))));
+        if (largePack) {
+            regionSize = Math.min(32, regionSize * 2);
+        }
+        profile.setRegionSize(regionSize);
+        profile.setMaxPauseMillis(MAX_PAUSE_MILLIS);
+
+        // Leave a core for the game's render thread
+        if (cores >= 4) {
+            int parallel = cores <= 8 ? cores - 1 : 7 + (cores - 8) * 5 / 8;
+            profile.setParallelGcThreads(parallel);
+            profile.setConcGcThreads(Math.max(1, (parallel + 2) / 4));
+        }
+
+        profile.setStringDeduplication(largePack);
+        profile.setLargePages(platform == Platform.LINUX
+                && physicalMemory >= LARGE_PAGES_MIN_MEMORY && maxMemory >= LARGE_PAGES_MIN_HEAP);
+
+        return profile;
+    }
+
+    /**
+     * Add the flags for the given profile to the start of the builder's
+     * flags, so that flags from the user or the modpack still take
+     * precedence.
+     *
+     * @param builder the process builder
+     * @param profile the profile
+     */
+    public void apply(JavaProcessBuilder builder, TuningProfile profile) {
+        if (!Boolean.TRUE.equals(profile.getEnabled())) {
+            log.info("JVM tuning is disabled");
+            return;
+        }
+
+        List<String> flags = createFlags(profile, hasCollector(builder.getFlags()));
+        log.info("Using JVM tuning profile " + profile + ": " + flags);
+        builder.getFlags().addAll(0, flags);
+    }
+
+    /**
+     * Create the flags for a profile.
+     *
+     * @param profile the profile
+     * @param collectorSet true if a collector was already chosen elsewhere
+     * @return a list of flags
+     */
+    public List<String> createFlags(TuningProfile profile, boolean collectorSet) {
+        List<String> flags = new ArrayList<String>();
+        int version = getVersion();
+        String collector = collectorSet ? null : getSupportedCollector(profile.getCollector());
+
+        if (G1.equals(collector)) {
+            flags.add("-XX:+UseG1GC");
+            if (profile.getRegionSize() != null && supports("G1HeapRegionSize")) {
+                flags.add("-XX:G1HeapRegionSize=" + profile.getRegionSize() + "M");
+            }
+            if (profile.getMaxPauseMillis() != null && supports("MaxGCPauseMillis")) {
+                flags.add("-XX:MaxGCPauseMillis=" + profile.getMaxPauseMillis());
+            }
+        } else if (PARALLEL.equals(collector)) {
+            flags.add("-XX:+UseParallelGC");
+        } else if (CMS.equals(collector)) {
+            if (version <= 8 && supports("UseParNewGC")) {
+                flags.add("-XX:+UseParNewGC");
+            }
+            flags.add("-XX:+UseConcMarkSweepGC");
+        } else if (SHENANDOAH.equals(collector)) {
+            flags.add("-XX:+UseShenandoahGC");
+        } else if (ZGC.equals(collector)) {
+            flags.add("-XX:+UseZGC");
+            // Generational ZGC is the default from Java 23, which deprecates the flag
+            if (version < 23 && supports("ZGenerational")) {
+                flags.add("-XX:+ZGenerational");
+            }
+        }
+
+        if (profile.getParallelGcThreads() != null && supports("ParallelGCThreads")) {
+            flags.add("-XX:ParallelGCThreads=" + profile.getParallelGcThreads());
+        }
+        if (profile.getConcGcThreads() != null && supports("ConcGCThreads")) {
+            flags.add("-XX:ConcGCThreads=" + profile.getConcGcThreads());
+        }
+
+        if (Boolean.TRUE.equals(profile.getStringDeduplication()) && supportsStringDeduplication(collector)) {
+            flags.add("-XX:+UseStringDeduplication");
+        }
+
+        if (Boolean.TRUE.equals(profile.getLargePages())) {
+            if (platform == Platform.LINUX) {
+                if (supports("UseTransparentHugePages")) {
+                    flags.add("-XX:+UseTransparentHugePages");
+                }
+            } else if (supports("UseLargePages")) {
+                flags.add("-XX:+UseLargePages");
+            }
+        }
+
+        return flags;
+    }
+
+    /**
+     * Get the collector to use, falling back to G1 if the runtime doesn't
+     * have the requested collector. Collectors that are still experimental
+     * in the runtime are not offered by the probe, so they are never used.
+     *
+     * @param collector the requested collector
+     * @return the collector, or null to use the JVM's default
+     */
+    private String getSupportedCollector(String collector) {
+        int version = getVersion();
+        boolean supported;
+
+        if (collector == null || DEFAULT.equals(collector)) {
+            return null;
+        } else if (G1.equals(collector)) {
+            supported = supports("UseG1GC");
+        } else if (PARALLEL.equals(collector)) {
+            supported = supports("UseParallelGC");
+        } else if (CMS.equals(collector)) {
+            supported = supports("UseConcMarkSweepGC");
+        } else if (SHENANDOAH.equals(collector)) {
+            supported = supports("UseShenandoahGC");
+        } else if (ZGC.equals(collector)) {
+            supported = supports("UseZGC");
+        } else {
+            log.warning("Unknown garbage collector '" + collector + "' in tuning profile");
+            supported = false;
+        }
+
+        if (supported) {
+            return collector;
+        } else {
+            String fallback = version >= 8 && supports("UseG1GC") ? G1 : null;
+            log.log(Level.INFO, "Java {0} does not support the {1} collector; using {2} instead",
+                    new Object[] { version, collector, fallback != null ? fallback : DEFAULT });
+            return fallback;
+        }
+    }
+
+    private boolean supportsStringDeduplication(String collector) {
+        // Before Java 18, only G1 and Shenandoah deduplicate strings
+        return supports("UseStringDeduplication")
+                && (getVersion() >= 18 || G1.equals(collector) || SHENANDOAH.equals(collector));
+    }
+
+    private boolean supports(String flag) {
+        return runtime != null && runtime.supportsFlag(flag);
+    }
+
+    private int getVersion() {
+        return runtime != null ? runtime.getMajorVersion() : -1;
+    }
+
+    /**
+     * Check whether the given flags already choose a garbage collector,
+     * since the JVM refuses to start with conflicting collectors.
+     *
+     * @param flags the flags
+     * @return true if a collector is set
+     */
+    private static boolean hasCollector(List<String> flags) {
+        for (String flag : flags) {
+            if (flag.startsWith("-XX:+Use") && flag.endsWith("GC")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Get the total size of the files in a modpack's mods folder.
+     *
+     * @param contentDir the content directory of the instance
+     * @return the size in bytes
+     */
+    public static long getModsSize(File contentDir) {
+        return getSize(new File(contentDir, "mods"), 2);
+    }
+
+    private static long getSize(File dir, int depth) {
+        File[] files = dir.listFiles();
+        long size = 0;
+        if (files != null) {
+            for (File file : files) {
+                if (file.isDirectory()) {
+                    if (depth > 1) {
+                        size += getSize(file, depth - 1);
+                    }
+                } else {
+                    size += file.length();
+                }
+            }
+        }
+        return size;
+    }
+
+}
@@ -0,0 +1,103 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.google.common.base.Charsets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.skcraft.launcher.Instance;
+import com.skcraft.launcher.util.Environment;
+import lombok.Data;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The parts of a launch that only depend on the instance's version manifest
+ * and the assets index, resolved once and stored with the instance so that
+ * later launches don't have to parse the manifests, evaluate library rules or
+ * check every library on disk again.
+ * </p>
+ * A plan is only reused while its fingerprint matches, which covers the
+ * version manifest, the instance version and the environment.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class LaunchPlan {
+
+    private static final int FORMAT_VERSION = 1;
+
+    private String fingerprint;
+    private String versionId;
+    private String assetsIndex;
+    private long assetsIndexStamp;
+    private String mainClass;
+    private String minecraftArguments;
+    private List<String> classPath = new ArrayList<String>();
+    private String nativesDir;
+    private String virtualAssetsDir;
+    private String dockIcon;
+
+    /**
+     * Check whether the directories that the plan refers to still exist.
+     *
+     * @return true if the plan can be used
+     */
+    public boolean isUsable() {
+        return fingerprint != null && versionId != null && mainClass != null && minecraftArguments != null
+                && nativesDir != null && new File(nativesDir).isDirectory()
+                && virtualAssetsDir != null && new File(virtualAssetsDir).isDirectory();
+    }
+
+    /**
+     * Get the file where the launch plan of an instance is stored.
+     *
+     * @param instance the instance
+     * @return the file, which may not exist
+     */
+    public static File getPath(Instance instance) {
+        return new File(instance.getDir(), "launch_plan.json");
+    }
+
+    /**
+     * Create the fingerprint that a stored plan must match to be reused.
+     *
+     * @param instance the instance
+     * @param environment the environment
+     * @param librariesDir the libraries directory
+     * @return the fingerprint
+     * @throws IOException on I/O error
+     */
+    public static String createFingerprint(Instance instance, Environment environment,
+                                           File librariesDir) throws IOException {
+        Hasher hasher = Hashing.sha1().newHasher();
+        hasher.putInt(FORMAT_VERSION);
+        hasher.putString(Files.hash(instance.getVersionPath(), Hashing.sha1()).toString(), Charsets.UTF_8);
+        hasher.putChar('\0');
+        hasher.putString(String.valueOf(instance.getVersion()), Charsets.UTF_8);
+        hasher.putChar('\0');
+        hasher.putString(environment.toString(), Charsets.UTF_8);
+        hasher.putChar('\0');
+        hasher.putString(librariesDir.getAbsolutePath(), Charsets.UTF_8);
+        return hasher.hash().toString();
+    }
+
+    /**
+     * Create a stamp that changes whenever the given file is changed.
+     *
+     * @param file the file
+     * @return the stamp
+     */
+    public static long createStamp(File file) {
+        return file.lastModified() * 31 + file.length();
+    }
+
+}
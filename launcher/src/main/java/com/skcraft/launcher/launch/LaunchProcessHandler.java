@@ -11,12 +11,15 @@ import com.skcraft.launcher.Launcher;
 import com.skcraft.launcher.auth.Session;
 import com.skcraft.launcher.dialog.LauncherFrame;
 import com.skcraft.launcher.dialog.ProcessConsoleFrame;
+import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.swing.MessageLog;
 import lombok.NonNull;
 import lombok.extern.java.Log;
 
 import javax.swing.*;
+import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.util.List;
 import java.util.logging.Level;
 import nz.co.lolnet.statistics.MetaData;
 import nz.co.lolnet.statistics.ThreadModPackGameTime;
@@ -28,6 +31,8 @@ import nz.co.lolnet.statistics.ThreadModPackGameTime;
 public class LaunchProcessHandler implements Function<Process, ProcessConsoleFrame> {
 
     private static final int CONSOLE_NUM_LINES = 10000;
+    private static final long GOVERNOR_REAPPLY_DELAY = 5000;
+    private static final long OUTPUT_END_TIMEOUT = 2000;
 
     private final Launcher launcher;
     private ProcessConsoleFrame consoleFrame;
@@ -47,23 +52,83 @@ public class LaunchProcessHandler implements Function<Process, ProcessConsoleFra
         log.info("Watching process " + process);
         startTime = System.currentTimeMillis();
 
+        final ProcessGovernor governor = new ProcessGovernor(launcher.getConfig());
+        final ProcessSampler sampler = new ProcessSampler(process);
+        sampler.start();
+
+        ConsoleSpool spool;
+        try {
+            spool = new ConsoleSpool(ConsoleSpool.getDir(instance), launcher.getExecutor());
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to create the console log file", e);
+            spool = null;
+        }
+        final ConsoleSpool consoleSpool = spool;
+
+        final CrashDetector detector = new CrashDetector();
+        detector.addListener(new CrashDetector.Listener() {
+            @Override
+            public void crashDiagnosed(final CrashDiagnosis diagnosis) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        if (consoleFrame != null) {
+                            consoleFrame.addDiagnosis(diagnosis);
+                        }
+                    }
+                });
+            }
+        });
+
         try {
             SwingUtilities.invokeAndWait(new Runnable() {
                 @Override
                 public void run() {
                     consoleFrame = new ProcessConsoleFrame(CONSOLE_NUM_LINES, true);
                     consoleFrame.setProcess(process);
+                    if (sampler.isSupported()) {
+                        consoleFrame.setSampler(sampler);
+                    }
+                    if (consoleSpool != null) {
+                        consoleFrame.setSpool(consoleSpool);
+                        consoleSpool.consume(process.getInputStream(), detector.newScanner());
+                        consoleSpool.consume(process.getErrorStream(), detector.newScanner());
+                    } else {
+                        MessageLog messageLog = consoleFrame.getMessageLog();
+                        messageLog.consume(process.getInputStream(), null, detector.newScanner());
+                        messageLog.consume(process.getErrorStream(), null, detector.newScanner());
+                    }
                     if (Launcher.instance.getConfig().isOpenConsoleOnLaunch()) {
                         consoleFrame.setVisible(true);
                     }
-                    MessageLog messageLog = consoleFrame.getMessageLog();
-                    messageLog.consume(process.getInputStream());
-                    messageLog.consume(process.getErrorStream());
                 }
             });
 
+            // The governor runs external commands, so keep it off this thread
+            // and only start once the output is being read
+            if (governor.isEnabled()) {
+                launcher.getExecutor().submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        governor.apply(process);
+
+                        // Apply again to cover threads that the JVM started in the meantime
+                        try {
+                            Thread.sleep(GOVERNOR_REAPPLY_DELAY);
+                            governor.apply(process);
+                        } catch (InterruptedException ignored) {
+                        }
+                    }
+                });
+            }
+
             // Wait for the process to end
             process.waitFor();
+
+            // Let the last of the output be read so that it is diagnosed
+            if (consoleSpool != null) {
+                consoleSpool.awaitEnd(OUTPUT_END_TIMEOUT);
+            }
         } catch (InterruptedException e) {
             // Orphan process
         } catch (InvocationTargetException e) {
@@ -71,6 +136,14 @@ public class LaunchProcessHandler implements Function<Process, ProcessConsoleFra
         }
 
         log.info("Process ended, re-showing launcher...");
+        governor.release();
+        sampler.stop();
+        List<CrashDiagnosis> diagnoses = detector.getDiagnoses();
+        if (sampler.isSupported() || !diagnoses.isEmpty()) {
+            SessionSummary summary = sampler.createSummary();
+            summary.setDiagnoses(diagnoses);
+            saveSessionSummary(summary);
+        }
         endTime = System.currentTimeMillis();
         final long totalTime = (endTime - startTime) / (1000);
 
@@ -84,6 +157,7 @@ public class LaunchProcessHandler implements Function<Process, ProcessConsoleFra
                 }
                 if (consoleFrame != null) {
                     consoleFrame.setProcess(null);
+                    consoleFrame.setSampler(null);
                     consoleFrame.requestFocus();
                 }
             }
@@ -92,4 +166,17 @@ public class LaunchProcessHandler implements Function<Process, ProcessConsoleFra
         return consoleFrame;
     }
 
+    private void saveSessionSummary(SessionSummary summary) {
+        try {
+            SessionHistory history = Persistence.read(SessionHistory.getPath(instance), SessionHistory.class, true);
+            if (history == null) {
+                history = new SessionHistory();
+            }
+            history.add(summary);
+            Persistence.write(SessionHistory.getPath(instance), history);
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Failed to save the session summary", e);
+        }
+    }
+
 }
@@ -119,7 +119,7 @@ public class LaunchSupervisor {
         final File extractDir = launcher.createExtractDir();
         
         // Get the process
-        Runner task = new Runner(launcher, instance, session, extractDir);
+        final Runner task = new Runner(launcher, instance, session, extractDir);
         ObservableFuture<Process> processFuture = new ObservableFuture<Process>(
                 launcher.getExecutor().submit(task), task);
 
@@ -131,6 +131,7 @@ public class LaunchSupervisor {
         Futures.addCallback(processFuture, new FutureCallback<Process>() {
             @Override
             public void onSuccess(Process result) {
+                launcher.getPrefetcher().cancel();
                 SwingUtilities.invokeLater(new Runnable() {
                     @Override
                     public void run() {
@@ -166,6 +167,12 @@ public class LaunchSupervisor {
                         listener.gameClosed();
                     }
                 });
+
+                // Create the class data sharing archive from the classes recorded this launch
+                ClassDataSharing classDataSharing = task.getClassDataSharing();
+                if (classDataSharing != null) {
+                    classDataSharing.createArchive();
+                }
             }
         }, sameThreadExecutor());
     }
@@ -0,0 +1,162 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Joiner;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.skcraft.launcher.install.ZipExtract;
+import lombok.Data;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Level;
+
+/**
+ * Stores extracted native libraries so that they can be reused across
+ * launches and shared between instances that use the same libraries.
+ * </p>
+ * Each set of native libraries is extracted into a directory named after a
+ * hash of every library's path, file hash and exclude list. Extraction
+ * happens in a private temporary directory which is then renamed into place,
+ * so a directory that exists is always complete and concurrent launches
+ * never see a half-extracted set.
+ */
+@Log
+public class NativesCache {
+
+    private static final HashFunction hf = Hashing.sha1();
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final File dir;
+
+    /**
+     * Create a new cache.
+     *
+     * @param dir the directory to store extracted natives in
+     */
+    public NativesCache(@NonNull File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Get a directory containing the given native libraries, extracting them
+     * if they are not already in the cache.
+     *
+     * @param natives the list of native libraries
+     * @return the directory
+     * @throws IOException on I/O error
+     */
+    public File get(@NonNull List<NativeLibrary> natives) throws IOException {
+        String key = createKey(natives);
+        File target = new File(dir, key);
+
+        if (target.isDirectory()) {
+            log.info("Using cached natives at " + target.getAbsolutePath());
+            target.setLastModified(System.currentTimeMillis());
+            return target;
+        }
+
+        File tempDir = new File(dir, key + "." + UUID.randomUUID() + TEMP_SUFFIX);
+        tempDir.mkdirs();
+
+        try {
+            for (NativeLibrary library : natives) {
+                ZipExtract zipExtract = new ZipExtract(library.getFile(), tempDir);
+                zipExtract.setExclude(library.getExclude());
+                zipExtract.run();
+            }
+
+            publish(tempDir, target);
+        } catch (RuntimeException e) {
+            throw new IOException("Failed to extract natives to " + tempDir.getAbsolutePath(), e);
+        } finally {
+            if (tempDir.exists()) {
+                FileUtils.deleteDirectory(tempDir);
+            }
+        }
+
+        log.info("Extracted natives to " + target.getAbsolutePath());
+        return target;
+    }
+
+    /**
+     * Move a fully extracted directory into place. If another launch
+     * published the same key first, its copy is kept.
+     */
+    private static void publish(File tempDir, File target) throws IOException {
+        try {
+            java.nio.file.Files.move(tempDir.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            if (!tempDir.renameTo(target) && !target.isDirectory()) {
+                throw new IOException("Failed to rename " + tempDir + " to " + target);
+            }
+        } catch (IOException e) {
+            if (!target.isDirectory()) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Delete cached natives that have not been used in the given time, as
+     * well as temporary directories left behind by interrupted extractions.
+     *
+     * @param maxAge the maximum age in milliseconds
+     */
+    public void cleanup(long maxAge) {
+        File[] dirs = dir.listFiles();
+        if (dirs == null) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (File file : dirs) {
+            if (file.isDirectory() && (now - file.lastModified()) > maxAge) {
+                log.info("Removing " + file.getAbsolutePath() + "...");
+                try {
+                    FileUtils.deleteDirectory(file);
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to delete " + file.getAbsolutePath(), e);
+                }
+            }
+        }
+    }
+
+    private static String createKey(List<NativeLibrary> natives) throws IOException {
+        Hasher hasher = hf.newHasher();
+        for (NativeLibrary library : natives) {
+            hasher.putString(library.getPath(), Charsets.UTF_8);
+            hasher.putChar('\0');
+            hasher.putString(Files.hash(library.getFile(), hf).toString(), Charsets.UTF_8);
+            hasher.putChar('\0');
+            if (library.getExclude() != null) {
+                hasher.putString(Joiner.on('\n').join(library.getExclude()), Charsets.UTF_8);
+            }
+            hasher.putChar('\0');
+        }
+        return hasher.hash().toString();
+    }
+
+    @Data
+    public static class NativeLibrary {
+        private final String path;
+        private final File file;
+        private final List<String> exclude;
+    }
+
+}
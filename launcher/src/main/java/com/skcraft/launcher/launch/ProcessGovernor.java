@@ -0,0 +1,224 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
+import com.google.common.io.Files;
+import com.skcraft.launcher.Configuration;
+import com.skcraft.launcher.LauncherUtils;
+import com.skcraft.launcher.util.Environment;
+import com.skcraft.launcher.util.Platform;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Limits how the game process competes with the rest of the machine on
+ * Linux, using the settings in {@link Configuration}.
+ * </p>
+ * The governor can lower the CPU and I/O priority of every thread of the
+ * game, restrict it to a set of CPUs, and move it into its own cgroup (v2)
+ * whose <code>memory.high</code> is set relative to the game's maximum
+ * heap. Each of these is optional, and anything that fails (usually because
+ * of missing tools or permissions) is logged and skipped without affecting
+ * the game.
+ */
+@Log
+public class ProcessGovernor {
+
+    private static final File CGROUP_ROOT = new File("/sys/fs/cgroup");
+    private static final long COMMAND_TIMEOUT = 10;
+
+    private final Configuration config;
+    private File cgroupDir;
+    private boolean released;
+
+    /**
+     * Create a new governor.
+     *
+     * @param config the configuration
+     */
+    public ProcessGovernor(@NonNull Configuration config) {
+        this.config = config;
+    }
+
+    /**
+     * Check whether any settings are configured and the platform supports
+     * them.
+     *
+     * @return true if enabled
+     */
+    public boolean isEnabled() {
+        return Environment.getInstance().getPlatform() == Platform.LINUX
+                && (config.getProcessNice() != 0
+                || !Strings.isNullOrEmpty(config.getProcessIoClass())
+                || !Strings.isNullOrEmpty(config.getProcessCpuAffinity())
+                || config.isProcessCgroup());
+    }
+
+    /**
+     * Apply the settings to the given process. This can be called again to
+     * also cover threads that the process started since the last call.
+     *
+     * @param process the process
+     */
+    public synchronized void apply(Process process) {
+        if (released || !isEnabled()) {
+            return;
+        }
+
+        int pid = LauncherUtils.getProcessId(process);
+        if (pid <= 0) {
+            log.warning("Can't govern the game process because its process ID is not available");
+            return;
+        }
+
+        if (config.isProcessCgroup() && cgroupDir == null) {
+            try {
+                joinCgroup(pid);
+            } catch (IOException e) {
+                log.log(Level.INFO, "Not using a cgroup for the game process: " + e.getMessage());
+            }
+        }
+
+        List<String> tasks = getTasks(pid);
+
+        if (config.getProcessNice() != 0) {
+            List<String> command = new ArrayList<String>(Arrays.asList("renice", "-n", String.valueOf(config.getProcessNice()), "-p"));
+            command.addAll(tasks);
+            run(command);
+        }
+
+        if (!Strings.isNullOrEmpty(config.getProcessIoClass())) {
+            List<String> command = new ArrayList<String>(Arrays.asList("ionice", "-c", config.getProcessIoClass()));
+            if (!"idle".equals(config.getProcessIoClass()) && !"3".equals(config.getProcessIoClass())) {
+                command.add("-n");
+                command.add(String.valueOf(config.getProcessIoLevel()));
+            }
+            command.add("-p");
+            command.addAll(tasks);
+            run(command);
+        }
+
+        if (!Strings.isNullOrEmpty(config.getProcessCpuAffinity())) {
+            run(Arrays.asList("taskset", "-a", "-p", "-c", config.getProcessCpuAffinity(), String.valueOf(pid)));
+        }
+    }
+
+    /**
+     * Remove the cgroup that was created for the process, once it has
+     * exited. Later calls to {@link #apply(Process)} do nothing.
+     */
+    public synchronized void release() {
+        released = true;
+        if (cgroupDir != null) {
+            if (!cgroupDir.delete()) {
+                log.info("Could not remove " + cgroupDir.getAbsolutePath());
+            }
+            cgroupDir = null;
+        }
+    }
+
+    /**
+     * Create a cgroup next to the launcher's own cgroup, limit its memory and
+     * move the process into it.
+     *
+     * @param pid the process ID
+     * @throws IOException if cgroups v2 are not available or not writable
+     */
+    private void joinCgroup(int pid) throws IOException {
+        if (!new File(CGROUP_ROOT, "cgroup.controllers").exists()) {
+            throw new IOException("cgroups v2 are not mounted at " + CGROUP_ROOT);
+        }
+
+        String self = null;
+        for (String line : Files.readLines(new File("/proc/self/cgroup"), Charsets.UTF_8)) {
+            if (line.startsWith("0::")) {
+                self = line.substring(3);
+            }
+        }
+        if (self == null) {
+            throw new IOException("The launcher is not in a cgroup v2 hierarchy");
+        }
+
+        // A cgroup with processes can't have children with controllers, so use a sibling
+        File parent = new File(CGROUP_ROOT, self).getParentFile();
+        File dir = new File(parent, "skcraft-game-" + pid + ".scope");
+        if (!dir.mkdir() && !dir.isDirectory()) {
+            throw new IOException("No permission to create " + dir.getAbsolutePath());
+        }
+        cgroupDir = dir;
+
+        long maxHeap = ProcessSampler.readMaxHeap(pid);
+        if (maxHeap > 0) {
+            long memoryHigh = maxHeap / 100 * config.getProcessMemoryHighRatio();
+            try {
+                write(new File(dir, "memory.high"), String.valueOf(memoryHigh));
+            } catch (IOException e) {
+                log.log(Level.INFO, "Could not set memory.high (is the memory controller delegated?): " + e.getMessage());
+            }
+        }
+
+        write(new File(dir, "cgroup.procs"), String.valueOf(pid));
+        log.info("Moved the game process into " + dir.getAbsolutePath());
+    }
+
+    private static void write(File file, String value) throws IOException {
+        Files.write(value, file, Charsets.US_ASCII);
+    }
+
+    /**
+     * Get the IDs of every thread of the process.
+     */
+    private static List<String> getTasks(int pid) {
+        List<String> tasks = new ArrayList<String>();
+        String[] names = new File("/proc/" + pid + "/task").list();
+        if (names != null) {
+            tasks.addAll(Arrays.asList(names));
+        } else {
+            tasks.add(String.valueOf(pid));
+        }
+        return tasks;
+    }
+
+    private static void run(List<String> command) {
+        File outputFile = null;
+        try {
+            // The output goes to a file so that nothing has to read it while waiting with the deadline
+            outputFile = File.createTempFile("governor", ".log");
+            ProcessBuilder processBuilder = new ProcessBuilder(command);
+            processBuilder.redirectErrorStream(true);
+            processBuilder.redirectOutput(outputFile);
+            Process process = processBuilder.start();
+
+            if (!process.waitFor(COMMAND_TIMEOUT, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                log.warning("Timed out while running " + command.get(0));
+            } else if (process.exitValue() != 0) {
+                log.info(command.get(0) + " failed (exit code " + process.exitValue() + "): "
+                        + Files.toString(outputFile, Charsets.UTF_8).trim());
+            }
+        } catch (IOException e) {
+            log.info("Could not run " + command.get(0) + ": " + e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (outputFile != null) {
+                outputFile.delete();
+            }
+        }
+    }
+
+}
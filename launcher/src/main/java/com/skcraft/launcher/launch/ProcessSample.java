@@ -0,0 +1,25 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import lombok.Data;
+
+/**
+ * The resource use of a process at one point in time. Values that could not
+ * be measured on the current platform are negative.
+ */
+@Data
+public class ProcessSample {
+
+    private final long time;
+    private final double cpu;
+    private final long rss;
+    private final int threads;
+    private final long readRate;
+    private final long writeRate;
+
+}
@@ -0,0 +1,352 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.Files;
+import com.skcraft.launcher.LauncherUtils;
+import com.skcraft.launcher.util.Environment;
+import com.skcraft.launcher.util.Platform;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.logging.Level;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.apache.commons.io.IOUtils.closeQuietly;
+
+/**
+ * Periodically records the CPU, memory, thread and I/O use of a process
+ * into a fixed-size ring buffer, and keeps running totals for a summary of
+ * the whole session.
+ * </p>
+ * On Linux, the values are read from <code>/proc/&lt;pid&gt;</code>. Other
+ * Unix systems fall back to <code>ps</code>, which only provides CPU and
+ * memory use.
+ */
+@Log
+public class ProcessSampler {
+
+    private static final long DEFAULT_INTERVAL = 3000;
+    private static final int DEFAULT_CAPACITY = 200;
+    private static final int CLOCK_TICKS = 100;
+    private static final Pattern maxHeapPattern = Pattern.compile("^-Xmx(\\d+)([kKmMgG]?)$");
+
+    private final int pid;
+    private final long interval;
+    private final ProcessSample[] samples;
+    private final boolean procfs;
+    private int next;
+    private int count;
+    private Timer timer;
+
+    private final Date started = new Date();
+    @Getter private int maxMemory;
+    private long lastTime;
+    private long lastCpuTicks = -1;
+    private long lastRead = -1;
+    private long lastWritten = -1;
+    private long firstRead = -1;
+    private long firstWritten = -1;
+    private int totalSamples;
+    private double cpuSum;
+    private double peakCpu;
+    private long rssSum;
+    private long peakRss;
+    private int peakThreads;
+
+    /**
+     * Create a new sampler that takes a sample every few seconds.
+     *
+     * @param process the process
+     */
+    public ProcessSampler(@NonNull Process process) {
+        this(process, DEFAULT_INTERVAL, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a new sampler.
+     *
+     * @param process the process
+     * @param interval the interval between samples, in milliseconds
+     * @param capacity the number of samples to keep
+     */
+    public ProcessSampler(@NonNull Process process, long interval, int capacity) {
+        this.pid = LauncherUtils.getProcessId(process);
+        this.interval = interval;
+        this.samples = new ProcessSample[capacity];
+        this.procfs = new File("/proc/" + pid + "/stat").exists();
+    }
+
+    /**
+     * Check whether the resource use of the process can be measured.
+     *
+     * @return true if supported
+     */
+    public boolean isSupported() {
+        Platform platform = Environment.getInstance().getPlatform();
+        return pid > 0 && (procfs || platform == Platform.MAC_OS_X || platform == Platform.SOLARIS);
+    }
+
+    /**
+     * Get the interval between samples.
+     *
+     * @return the interval in milliseconds
+     */
+    public long getInterval() {
+        return interval;
+    }
+
+    /**
+     * Start taking samples in the background.
+     */
+    public synchronized void start() {
+        if (timer != null || !isSupported()) {
+            return;
+        }
+
+        timer = new Timer("Process sampler", true);
+        timer.scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                sample();
+            }
+        }, 0, interval);
+    }
+
+    /**
+     * Stop taking samples.
+     */
+    public synchronized void stop() {
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Get the samples in the buffer, oldest first.
+     *
+     * @return a list of samples
+     */
+    public synchronized List<ProcessSample> getSamples() {
+        List<ProcessSample> list = new ArrayList<ProcessSample>(count);
+        int start = (next - count + samples.length) % samples.length;
+        for (int i = 0; i < count; i++) {
+            list.add(samples[(start + i) % samples.length]);
+        }
+        return list;
+    }
+
+    /**
+     * Get the most recent sample.
+     *
+     * @return the sample, or null if there are none yet
+     */
+    public synchronized ProcessSample getLatest() {
+        return count > 0 ? samples[(next - 1 + samples.length) % samples.length] : null;
+    }
+
+    /**
+     * Create a summary of the samples taken so far.
+     *
+     * @return the summary
+     */
+    public synchronized SessionSummary createSummary() {
+        SessionSummary summary = new SessionSummary();
+        summary.setStarted(started);
+        summary.setDuration((System.currentTimeMillis() - started.getTime()) / 1000);
+        summary.setMaxMemory(maxMemory);
+        summary.setSamples(totalSamples);
+        if (totalSamples > 0) {
+            summary.setAverageCpu(cpuSum / totalSamples);
+            summary.setAverageRss(rssSum / totalSamples);
+        }
+        summary.setPeakCpu(peakCpu);
+        summary.setPeakRss(peakRss);
+        summary.setPeakThreads(peakThreads);
+        summary.setBytesRead(firstRead >= 0 ? lastRead - firstRead : -1);
+        summary.setBytesWritten(firstWritten >= 0 ? lastWritten - firstWritten : -1);
+        return summary;
+    }
+
+    /**
+     * Take a sample and add it to the buffer.
+     */
+    private void sample() {
+        ProcessSample sample;
+        try {
+            sample = procfs ? sampleProcfs() : samplePs();
+        } catch (IOException e) {
+            // The process has most likely exited
+            log.log(Level.FINE, "Failed to sample process " + pid, e);
+            stop();
+            return;
+        }
+
+        if (sample != null) {
+            add(sample);
+        }
+    }
+
+    private synchronized void add(ProcessSample sample) {
+        samples[next] = sample;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+
+        totalSamples++;
+        cpuSum += Math.max(0, sample.getCpu());
+        peakCpu = Math.max(peakCpu, sample.getCpu());
+        rssSum += Math.max(0, sample.getRss());
+        peakRss = Math.max(peakRss, sample.getRss());
+        peakThreads = Math.max(peakThreads, sample.getThreads());
+    }
+
+    private ProcessSample sampleProcfs() throws IOException {
+        long now = System.currentTimeMillis();
+
+        // Skip the command name, which may contain spaces, to get to the fields after it
+        String stat = Files.toString(new File("/proc/" + pid + "/stat"), Charsets.US_ASCII);
+        String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+        long cpuTicks = Long.parseLong(fields[11]) + Long.parseLong(fields[12]);
+
+        long rss = -1;
+        int threads = -1;
+        for (String line : Files.readLines(new File("/proc/" + pid + "/status"), Charsets.US_ASCII)) {
+            if (line.startsWith("VmRSS:")) {
+                rss = parseLeadingNumber(line.substring(6)) * 1024;
+            } else if (line.startsWith("Threads:")) {
+                threads = (int) parseLeadingNumber(line.substring(8));
+            }
+        }
+
+        long read = -1;
+        long written = -1;
+        try {
+            for (String line : Files.readLines(new File("/proc/" + pid + "/io"), Charsets.US_ASCII)) {
+                if (line.startsWith("read_bytes:")) {
+                    read = parseLeadingNumber(line.substring(11));
+                } else if (line.startsWith("write_bytes:")) {
+                    written = parseLeadingNumber(line.substring(12));
+                }
+            }
+        } catch (IOException ignored) {
+            // Not readable on some kernels
+        }
+
+        if (maxMemory == 0) {
+            long maxHeap = readMaxHeap(pid);
+            maxMemory = maxHeap >= 0 ? (int) (maxHeap >> 20) : -1;
+        }
+
+        double cpu = -1;
+        long readRate = -1;
+        long writeRate = -1;
+        long elapsed = now - lastTime;
+
+        if (lastCpuTicks >= 0 && elapsed > 0) {
+            cpu = (cpuTicks - lastCpuTicks) * 1000.0 / CLOCK_TICKS / elapsed * 100;
+            if (read >= 0 && lastRead >= 0) {
+                readRate = (read - lastRead) * 1000 / elapsed;
+                writeRate = (written - lastWritten) * 1000 / elapsed;
+            }
+        }
+
+        if (firstRead < 0 && read >= 0) {
+            firstRead = read;
+            firstWritten = written;
+        }
+
+        lastTime = now;
+        lastCpuTicks = cpuTicks;
+        lastRead = read;
+        lastWritten = written;
+
+        // The first sample only establishes the baseline for rates
+        return cpu >= 0 ? new ProcessSample(now, cpu, rss, threads, readRate, writeRate) : null;
+    }
+
+    private ProcessSample samplePs() throws IOException {
+        ProcessBuilder processBuilder = new ProcessBuilder("ps", "-o", "%cpu=,rss=", "-p", String.valueOf(pid));
+        Process process = processBuilder.start();
+        InputStream is = process.getInputStream();
+        String output;
+        try {
+            output = new String(ByteStreams.toByteArray(is), Charsets.US_ASCII).trim();
+        } finally {
+            closeQuietly(is);
+        }
+
+        try {
+            process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        String[] parts = output.split("\\s+");
+        if (parts.length < 2) {
+            throw new IOException("Process " + pid + " is not running");
+        }
+
+        try {
+            double cpu = Double.parseDouble(parts[0].replace(',', '.'));
+            long rss = Long.parseLong(parts[1]) * 1024;
+            return new ProcessSample(System.currentTimeMillis(), cpu, rss, -1, -1, -1);
+        } catch (NumberFormatException e) {
+            throw new IOException("Unexpected output from ps: " + output);
+        }
+    }
+
+    /**
+     * Read the maximum heap size from the -Xmx flag on the command line of a
+     * process. If the flag is given more than once, the last one counts, as
+     * it does for the JVM.
+     *
+     * @param pid the process ID
+     * @return the size in bytes, or -1
+     */
+    static long readMaxHeap(int pid) {
+        try {
+            String cmdline = Files.toString(new File("/proc/" + pid + "/cmdline"), Charsets.UTF_8);
+            long maxHeap = -1;
+            for (String arg : cmdline.split("\0")) {
+                Matcher m = maxHeapPattern.matcher(arg);
+                if (m.matches()) {
+                    String unit = m.group(2).toLowerCase();
+                    long multiplier = unit.equals("g") ? 1L << 30 : unit.equals("m") ? 1L << 20 : unit.equals("k") ? 1L << 10 : 1;
+                    maxHeap = Long.parseLong(m.group(1)) * multiplier;
+                }
+            }
+            return maxHeap;
+        } catch (IOException e) {
+            return -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static long parseLeadingNumber(String text) {
+        String[] parts = text.trim().split("\\s+");
+        try {
+            return Long.parseLong(parts[0]);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+}
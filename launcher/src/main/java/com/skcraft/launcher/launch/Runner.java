@@ -7,8 +7,9 @@ package com.skcraft.launcher.launch;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
-import com.google.common.io.Files;
+import com.google.common.util.concurrent.ListenableFuture;
 import com.skcraft.concurrency.DefaultProgress;
 import com.skcraft.concurrency.ProgressObservable;
 import com.skcraft.launcher.*;
@@ -18,6 +19,8 @@ import com.skcraft.launcher.install.ZipExtract;
 import com.skcraft.launcher.model.minecraft.AssetsIndex;
 import com.skcraft.launcher.model.minecraft.Library;
 import com.skcraft.launcher.model.minecraft.VersionManifest;
+import com.skcraft.launcher.model.modpack.LaunchModifier;
+import com.skcraft.launcher.model.modpack.TuningProfile;
 import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.util.Environment;
 import com.skcraft.launcher.util.Platform;
@@ -30,13 +33,17 @@ import java.lang.management.ManagementFactory;
 import java.lang.management.OperatingSystemMXBean;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
-import java.util.logging.Logger;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.Setter;
@@ -46,7 +53,6 @@ import nz.co.lolnet.james137137.MemoryChecker;
 import static nz.co.lolnet.james137137.MyLogger.log;
 import nz.co.lolnet.statistics.ThreadLaunchedModpack;
 import org.apache.commons.lang.text.StrSubstitutor;
-import org.json.simple.parser.ParseException;
 
 /**
  * Handles the launching of an instance.
@@ -54,6 +60,8 @@ import org.json.simple.parser.ParseException;
 @Log
 public class Runner implements Callable<Process>, ProgressObservable {
 
+    private static final long MEMORY_HINTS_TIMEOUT = 5000;
+
     private ProgressObservable progress = new DefaultProgress(0, SharedLocale.tr("runner.preparing"));
 
     private final ObjectMapper mapper = new ObjectMapper();
@@ -65,12 +73,13 @@ public class Runner implements Callable<Process>, ProgressObservable {
     @Setter
     private Environment environment = Environment.getInstance();
 
-    private VersionManifest versionManifest;
-    private AssetsIndex assetsIndex;
-    private File virtualAssetsDir;
+    private LaunchPlan plan;
+    private ListenableFuture<?> memoryHints;
     private Configuration config;
     private JavaProcessBuilder builder;
     private AssetsRoot assetsRoot;
+    @Getter
+    private ClassDataSharing classDataSharing;
 
     /**
      * Create a new instance launcher.
@@ -78,7 +87,7 @@ public class Runner implements Callable<Process>, ProgressObservable {
      * @param launcher the launcher
      * @param instance the instance
      * @param session the session
-     * @param extractDir the directory to extract to
+     * @param extractDir the directory to extract to if the natives cache can't be used
      */
     public Runner(@NonNull Launcher launcher, @NonNull Instance instance,
             @NonNull Session session, @NonNull File extractDir) {
@@ -96,7 +105,7 @@ public class Runner implements Callable<Process>, ProgressObservable {
     private File getJarPath() {
         File jarPath = instance.getCustomJarPath();
         if (!jarPath.exists()) {
-            jarPath = launcher.getJarPath(versionManifest);
+            jarPath = launcher.getJarPath(plan.getVersionId());
         }
         return jarPath;
     }
@@ -108,39 +117,27 @@ public class Runner implements Callable<Process>, ProgressObservable {
             throw new LauncherException("Update required", SharedLocale.tr("runner.updateRequired"));
         }
 
+        Stopwatch stopwatch = Stopwatch.createStarted();
         config = launcher.getConfig();
         builder = new JavaProcessBuilder();
         assetsRoot = launcher.getAssets();
 
-        // Load manifiests
-        versionManifest = mapper.readValue(instance.getVersionPath(), VersionManifest.class);
-
-        // Load assets index
-        File assetsFile = assetsRoot.getIndexPath(versionManifest);
-        try {
-            assetsIndex = mapper.readValue(assetsFile, AssetsIndex.class);
-        } catch (FileNotFoundException e) {
-            instance.setInstalled(false);
-            Persistence.commitAndForget(instance);
-            throw new LauncherException("Missing assets index " + assetsFile.getAbsolutePath(),
-                    SharedLocale.tr("runner.missingAssetsIndex", instance.getTitle(), assetsFile.getAbsolutePath()));
-        } catch (IOException e) {
-            instance.setInstalled(false);
-            Persistence.commitAndForget(instance);
-            throw new LauncherException("Corrupt assets index " + assetsFile.getAbsolutePath(),
-                    SharedLocale.tr("runner.corruptAssetsIndex", instance.getTitle(), assetsFile.getAbsolutePath()));
-        }
+        // Fetch memory recommendations while the rest is being prepared
+        memoryHints = submitStage("memory recommendations", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                MemoryChecker.loadMemoryInfo();
+                return null;
+            }
+        });
 
-        // Copy over assets to the tree
-        try {
-            AssetsRoot.AssetsTreeBuilder assetsBuilder = assetsRoot.createAssetsBuilder(versionManifest);
-            progress = assetsBuilder;
-            virtualAssetsDir = assetsBuilder.build();
-        } catch (LauncherException e) {
-            instance.setInstalled(false);
-            Persistence.commitAndForget(instance);
-            throw e;
-        }
+        // Load the launch plan, or resolve it from the manifests
+        plan = runStage("launch plan", new Callable<LaunchPlan>() {
+            @Override
+            public LaunchPlan call() throws Exception {
+                return loadLaunchPlan();
+            }
+        });
 
         progress = new DefaultProgress(0.9, SharedLocale.tr("runner.collectingArgs"));
 
@@ -158,9 +155,11 @@ public class Runner implements Callable<Process>, ProgressObservable {
         }
         LauncherGobalSettings.put("InstanceLaunchCount_" + instance.getTitle(), launchCount);
         builder.classPath(getJarPath());
-        builder.setMainClass(versionManifest.getMainClass());
+        builder.setMainClass(plan.getMainClass());
 
         callLaunchModifier();
+        addTuningArgs();
+        addClassDataSharingArgs();
 
         ProcessBuilder processBuilder = new ProcessBuilder(builder.buildCommand());
         processBuilder.directory(instance.getContentDir());
@@ -168,6 +167,7 @@ public class Runner implements Callable<Process>, ProgressObservable {
         checkInterrupted();
 
         progress = new DefaultProgress(1, SharedLocale.tr("runner.startingJava"));
+        Runner.log.info("Launch preparation took " + stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms");
 
         //cptwin, launcher statistics
         new ThreadLaunchedModpack(instance.getTitle());
@@ -175,6 +175,176 @@ public class Runner implements Callable<Process>, ProgressObservable {
         return processBuilder.start();
     }
 
+    /**
+     * Read the stored launch plan for the instance, or create a new one if it
+     * is missing or out of date.
+     *
+     * @return the launch plan
+     * @throws Exception on error
+     */
+    private LaunchPlan loadLaunchPlan() throws Exception {
+        File planPath = LaunchPlan.getPath(instance);
+        String fingerprint = LaunchPlan.createFingerprint(instance, environment, launcher.getLibrariesDir());
+        LaunchPlan plan = Persistence.read(planPath, LaunchPlan.class, true);
+
+        if (plan != null && fingerprint.equals(plan.getFingerprint()) && plan.isUsable()
+                && plan.getAssetsIndexStamp() == LaunchPlan.createStamp(assetsRoot.getIndexPath(plan.getAssetsIndex()))) {
+            Runner.log.info("Using launch plan from " + planPath.getAbsolutePath());
+            // Mark the natives as in use, as NativesCache.get() would, so that they aren't cleaned up
+            new File(plan.getNativesDir()).setLastModified(System.currentTimeMillis());
+            return plan;
+        }
+
+        plan = createLaunchPlan(fingerprint);
+
+        try {
+            Persistence.write(planPath, plan);
+        } catch (IOException e) {
+            Runner.log.log(Level.WARNING, "Failed to write launch plan to " + planPath.getAbsolutePath(), e);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Resolve a new launch plan from the version manifest and assets index.
+     *
+     * @param fingerprint the fingerprint of the plan
+     * @return the launch plan
+     * @throws Exception on error
+     */
+    private LaunchPlan createLaunchPlan(String fingerprint) throws Exception {
+        final LaunchPlan plan = new LaunchPlan();
+        plan.setFingerprint(fingerprint);
+
+        // Load manifiests
+        final VersionManifest versionManifest = mapper.readValue(instance.getVersionPath(), VersionManifest.class);
+        plan.setVersionId(versionManifest.getId());
+        plan.setMainClass(versionManifest.getMainClass());
+        plan.setMinecraftArguments(versionManifest.getMinecraftArguments());
+        plan.setAssetsIndex(versionManifest.getAssetsIndex());
+
+        // Load assets index
+        File assetsFile = assetsRoot.getIndexPath(versionManifest);
+        AssetsIndex assetsIndex;
+        try {
+            assetsIndex = mapper.readValue(assetsFile, AssetsIndex.class);
+        } catch (FileNotFoundException e) {
+            instance.setInstalled(false);
+            Persistence.commitAndForget(instance);
+            throw new LauncherException("Missing assets index " + assetsFile.getAbsolutePath(),
+                    SharedLocale.tr("runner.missingAssetsIndex", instance.getTitle(), assetsFile.getAbsolutePath()));
+        } catch (IOException e) {
+            instance.setInstalled(false);
+            Persistence.commitAndForget(instance);
+            throw new LauncherException("Corrupt assets index " + assetsFile.getAbsolutePath(),
+                    SharedLocale.tr("runner.corruptAssetsIndex", instance.getTitle(), assetsFile.getAbsolutePath()));
+        }
+        plan.setAssetsIndexStamp(LaunchPlan.createStamp(assetsFile));
+
+        File icnsPath = assetsIndex.getObjectPath(assetsRoot, "icons/minecraft.icns");
+        if (icnsPath != null) {
+            plan.setDockIcon(icnsPath.getAbsolutePath());
+        }
+
+        // Copy over assets to the tree and extract natives at the same time
+        final AssetsRoot.AssetsTreeBuilder assetsBuilder;
+        try {
+            assetsBuilder = assetsRoot.createAssetsBuilder(versionManifest);
+        } catch (LauncherException e) {
+            instance.setInstalled(false);
+            Persistence.commitAndForget(instance);
+            throw e;
+        }
+        progress = assetsBuilder;
+
+        ListenableFuture<File> assetsTree = submitStage("assets tree", new Callable<File>() {
+            @Override
+            public File call() throws Exception {
+                return assetsBuilder.build();
+            }
+        });
+
+        ListenableFuture<Object> libraries = submitStage("libraries", new Callable<Object>() {
+            @Override
+            public Object call() throws Exception {
+                resolveLibraries(plan, versionManifest);
+                return null;
+            }
+        });
+
+        try {
+            plan.setVirtualAssetsDir(await(assetsTree).getAbsolutePath());
+            await(libraries);
+        } catch (LauncherException e) {
+            instance.setInstalled(false);
+            Persistence.commitAndForget(instance);
+            throw e;
+        } finally {
+            assetsTree.cancel(true);
+            libraries.cancel(true);
+        }
+
+        return plan;
+    }
+
+    /**
+     * Run a stage of the launch on the launcher's executor, logging how long
+     * it took.
+     *
+     * @param name the name of the stage
+     * @param callable the stage
+     * @param <V> the type of result
+     * @return a future
+     */
+    private <V> ListenableFuture<V> submitStage(final String name, final Callable<V> callable) {
+        return launcher.getExecutor().submit(new Callable<V>() {
+            @Override
+            public V call() throws Exception {
+                return runStage(name, callable);
+            }
+        });
+    }
+
+    /**
+     * Run a stage of the launch on the current thread, logging how long it
+     * took.
+     *
+     * @param name the name of the stage
+     * @param callable the stage
+     * @param <V> the type of result
+     * @return the result
+     * @throws Exception on error
+     */
+    private static <V> V runStage(String name, Callable<V> callable) throws Exception {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            return callable.call();
+        } finally {
+            Runner.log.info("Launch stage '" + name + "' took " + stopwatch.elapsed(TimeUnit.MILLISECONDS) + " ms");
+        }
+    }
+
+    /**
+     * Wait for a stage to complete, re-throwing its error if it failed.
+     *
+     * @param future the future
+     * @param <V> the type of result
+     * @return the result
+     * @throws Exception on error
+     */
+    private static <V> V await(Future<V> future) throws Exception {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof Exception) {
+                throw (Exception) cause;
+            }
+            throw e;
+        }
+    }
+
     /**
      * Call the manifest launch modifier.
      */
@@ -182,15 +352,55 @@ public class Runner implements Callable<Process>, ProgressObservable {
         instance.modify(builder);
     }
 
+    /**
+     * Add garbage collector and memory tuning arguments, generated for this
+     * machine and overridden by the instance's launch settings.
+     */
+    private void addTuningArgs() {
+        JvmTuning tuning = new JvmTuning();
+        tuning.setRuntime(builder.getRuntime());
+        tuning.setPlatform(getEnvironment().getPlatform());
+        tuning.setPhysicalMemory(Configuration.maxSystemMemory() * 1024);
+        tuning.setMaxMemory(builder.getMaxMemory());
+        tuning.setPackSize(JvmTuning.getModsSize(instance.getContentDir()));
+
+        TuningProfile profile = tuning.createProfile();
+        LaunchModifier launchModifier = instance.getLaunchModifier();
+        if (launchModifier != null) {
+            profile.override(launchModifier.getTuning());
+        }
+
+        tuning.apply(builder, profile);
+    }
+
+    /**
+     * Add class data sharing arguments if the instance has opted in.
+     */
+    private void addClassDataSharingArgs() {
+        LaunchModifier launchModifier = instance.getLaunchModifier();
+        if (launchModifier == null || !launchModifier.isClassDataSharing() || builder.getRuntime() == null) {
+            return;
+        }
+
+        classDataSharing = new ClassDataSharing(
+                ClassDataSharing.getDir(instance), builder.getRuntime(), builder.buildClassPath());
+
+        try {
+            classDataSharing.configure(builder);
+        } catch (IOException e) {
+            Runner.log.log(Level.WARNING, "Failed to set up class data sharing", e);
+            classDataSharing = null;
+        }
+    }
+
     /**
      * Add platform-specific arguments.
      */
     private void addPlatformArgs() {
         // Mac OS X arguments
         if (getEnvironment().getPlatform() == Platform.MAC_OS_X) {
-            File icnsPath = assetsIndex.getObjectPath(assetsRoot, "icons/minecraft.icns");
-            if (icnsPath != null) {
-                builder.getFlags().add("-Xdock:icon=" + icnsPath.getAbsolutePath());
+            if (plan.getDockIcon() != null) {
+                builder.getFlags().add("-Xdock:icon=" + plan.getDockIcon());
                 builder.getFlags().add("-Xdock:name=Minecraft");
             }
         }
@@ -204,24 +414,39 @@ public class Runner implements Callable<Process>, ProgressObservable {
     /**
      * Add libraries.
      */
-    private void addLibraries() throws LauncherException {
-        // Add libraries to classpath or extract the libraries as necessary
+    private void addLibraries() {
+        for (String path : plan.getClassPath()) {
+            builder.classPath(path);
+        }
+
+        builder.getFlags().add("-Djava.library.path=" + plan.getNativesDir());
+    }
+
+    /**
+     * Resolve the class path and extract native libraries for a launch plan.
+     *
+     * @param plan the launch plan
+     * @param versionManifest the version manifest
+     * @throws LauncherException thrown if a library is missing
+     */
+    private void resolveLibraries(LaunchPlan plan, VersionManifest versionManifest) throws LauncherException {
+        // Add libraries to classpath or collect the libraries to extract as necessary
+        List<NativesCache.NativeLibrary> natives = new ArrayList<NativesCache.NativeLibrary>();
         LinkedHashSet<Library> libraries = versionManifest.getLibraries();
         for (Library library : libraries) {
             if (!library.matches(environment)) {
                 continue;
             }
 
-            File path = new File(launcher.getLibrariesDir(), library.getPath(environment));
+            String libraryPath = library.getPath(environment);
+            File path = new File(launcher.getLibrariesDir(), libraryPath);
 
             if (path.exists()) {
                 Library.Extract extract = library.getExtract();
                 if (extract != null) {
-                    ZipExtract zipExtract = new ZipExtract(Files.asByteSource(path), extractDir);
-                    zipExtract.setExclude(extract.getExclude());
-                    zipExtract.run();
+                    natives.add(new NativesCache.NativeLibrary(libraryPath, path, extract.getExclude()));
                 } else {
-                    builder.classPath(path);
+                    plan.getClassPath().add(path.getAbsolutePath());
                 }
             } else {
                 instance.setInstalled(false);
@@ -231,19 +456,37 @@ public class Runner implements Callable<Process>, ProgressObservable {
             }
         }
 
-        builder.getFlags().add("-Djava.library.path=" + extractDir.getAbsoluteFile());
+        File nativesDir;
+        try {
+            nativesDir = new NativesCache(launcher.getNativesDir()).get(natives);
+        } catch (IOException e) {
+            Runner.log.log(Level.WARNING, "Failed to use the natives cache; extracting to " + extractDir, e);
+            for (NativesCache.NativeLibrary library : natives) {
+                ZipExtract zipExtract = new ZipExtract(library.getFile(), extractDir);
+                zipExtract.setExclude(library.getExclude());
+                zipExtract.run();
+            }
+            nativesDir = extractDir;
+        }
+
+        plan.setNativesDir(nativesDir.getAbsolutePath());
     }
 
     /**
      * Add JVM arguments.
      *
      * @throws IOException on I/O error
+     * @throws InterruptedException on interruption
      */
-    private void addJvmArgs() throws IOException {
+    private void addJvmArgs() throws IOException, InterruptedException {
+        boolean hintsLoaded = false;
         try {
-            MemoryChecker.getMemoryInfoFromServer();
-        } catch (ParseException ex) {
-            Logger.getLogger(Runner.class.getName()).log(Level.SEVERE, null, ex);
+            memoryHints.get(MEMORY_HINTS_TIMEOUT, TimeUnit.MILLISECONDS);
+            hintsLoaded = true;
+        } catch (ExecutionException e) {
+            Runner.log.log(Level.SEVERE, "Failed to fetch memory recommendations", e.getCause());
+        } catch (TimeoutException e) {
+            Runner.log.warning("Memory recommendations took longer than " + MEMORY_HINTS_TIMEOUT + " ms; using the configured values");
         }
         log("Memory Checker starts here:");
         log("modpack: " + instance.getName() + " " + instance.getVersion());
@@ -281,9 +524,11 @@ public class Runner implements Callable<Process>, ProgressObservable {
 
             log("2nd check getting vaules from Lolnet WebServer:");
 
-            minMemory = MemoryChecker.checkMinMemory(minMemory, instance);
-            maxMemory = MemoryChecker.checkMaxMemory(maxMemory, instance);
-            permGen = MemoryChecker.checkpermGen(permGen, instance);
+            if (hintsLoaded) {
+                minMemory = MemoryChecker.checkMinMemory(minMemory, instance);
+                maxMemory = MemoryChecker.checkMaxMemory(maxMemory, instance);
+                permGen = MemoryChecker.checkpermGen(permGen, instance);
+            }
 
             log("min: " + minMemory);
             log("max: " + maxMemory);
@@ -328,6 +573,17 @@ public class Runner implements Callable<Process>, ProgressObservable {
         String rawJvmPath = config.getJvmPath();
         if (!Strings.isNullOrEmpty(rawJvmPath)) {
             builder.tryJvmPath(new File(rawJvmPath));
+        } else {
+            // Waits for the runtimes to be probed if the launcher is still doing so
+            builder.setJvmPath(JavaRuntimeFinder.findBestJavaPath());
+        }
+
+        JavaRuntime runtime = JavaRuntimeFinder.getRuntime(builder.getJvmPath());
+        builder.setRuntime(runtime);
+        if (runtime != null && runtime.hasMaxHeap() && builder.getMaxMemory() > runtime.getMaxHeap()) {
+            Runner.log.warning("Limiting the heap to " + runtime.getMaxHeap() + " MB for the 32-bit runtime " + runtime.getPath());
+            builder.setMaxMemory(runtime.getMaxHeap());
+            builder.setMinMemory(Math.min(builder.getMinMemory(), runtime.getMaxHeap()));
         }
 
         String rawJvmArgs = config.getJvmArgs();
@@ -367,7 +623,7 @@ public class Runner implements Callable<Process>, ProgressObservable {
     private void addJarArgs() throws JsonProcessingException {
         List<String> args = builder.getArgs();
 
-        String[] rawArgs = versionManifest.getMinecraftArguments().split(" +");
+        String[] rawArgs = plan.getMinecraftArguments().split(" +");
         StrSubstitutor substitutor = new StrSubstitutor(getCommandSubstitutions());
         for (String arg : rawArgs) {
             args.add(substitutor.replace(arg));
@@ -399,7 +655,7 @@ public class Runner implements Callable<Process>, ProgressObservable {
     private Map<String, String> getCommandSubstitutions() throws JsonProcessingException {
         Map<String, String> map = new HashMap<String, String>();
 
-        map.put("version_name", versionManifest.getId());
+        map.put("version_name", plan.getVersionId());
 
         map.put("auth_access_token", session.getAccessToken());
         map.put("auth_session", session.getSessionToken());
@@ -411,9 +667,9 @@ public class Runner implements Callable<Process>, ProgressObservable {
         map.put("user_properties", mapper.writeValueAsString(session.getUserProperties()));
 
         map.put("game_directory", instance.getContentDir().getAbsolutePath());
-        map.put("game_assets", virtualAssetsDir.getAbsolutePath());
+        map.put("game_assets", plan.getVirtualAssetsDir());
         map.put("assets_root", launcher.getAssets().getDir().getAbsolutePath());
-        map.put("assets_index_name", versionManifest.getAssetsIndex());
+        map.put("assets_index_name", plan.getAssetsIndex());
 
         return map;
     }
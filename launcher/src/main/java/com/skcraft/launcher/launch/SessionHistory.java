@@ -0,0 +1,50 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.skcraft.launcher.Instance;
+import lombok.Data;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The summaries of the most recent game sessions of an instance.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SessionHistory {
+
+    private static final int MAX_SESSIONS = 50;
+
+    private List<SessionSummary> sessions = new ArrayList<SessionSummary>();
+
+    /**
+     * Add a session, dropping the oldest sessions if there are too many.
+     *
+     * @param summary the summary
+     */
+    public void add(SessionSummary summary) {
+        sessions.add(summary);
+        while (sessions.size() > MAX_SESSIONS) {
+            sessions.remove(0);
+        }
+    }
+
+    /**
+     * Get the file where the session history of an instance is stored.
+     *
+     * @param instance the instance
+     * @return the file, which may not exist
+     */
+    public static File getPath(Instance instance) {
+        return new File(instance.getDir(), "sessions.json");
+    }
+
+}
@@ -0,0 +1,36 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.launch;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * A summary of the resources that the game used during one session.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class SessionSummary {
+
+    private Date started;
+    private long duration;
+    private int maxMemory;
+    private int samples;
+    private double averageCpu;
+    private double peakCpu;
+    private long averageRss;
+    private long peakRss;
+    private int peakThreads;
+    private long bytesRead;
+    private long bytesWritten;
+    private List<CrashDiagnosis> diagnoses = new ArrayList<CrashDiagnosis>();
+
+}
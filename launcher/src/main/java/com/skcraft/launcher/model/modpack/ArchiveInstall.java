@@ -0,0 +1,155 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.model.modpack;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.google.common.base.Strings;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.io.Files;
+import com.skcraft.launcher.install.ArchiveExtract;
+import com.skcraft.launcher.install.InstallLog;
+import com.skcraft.launcher.install.Installer;
+import com.skcraft.launcher.install.UpdateCache;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NonNull;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.skcraft.launcher.LauncherUtils.concat;
+
+/**
+ * A bundle of many (usually small) files that is downloaded as a single
+ * zip archive and extracted member by member. Members whose local copy
+ * already matches are skipped.
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class ArchiveInstall extends ManifestEntry {
+
+    private static HashFunction hf = Hashing.sha1();
+    private String version;
+    private String hash;
+    private String location;
+    private String to;
+    private long size;
+    private boolean userFile;
+    private List<Member> files = new ArrayList<Member>();
+    @JsonIgnore
+    private Map<String, String> existingHashes;
+
+    @JsonIgnore
+    public String getImpliedVersion() {
+        return checkNotNull(version != null ? version : hash);
+    }
+
+    /**
+     * Get the path, relative to the content directory, that the given member
+     * is installed to.
+     *
+     * @param member the member
+     * @return the target path
+     */
+    public String getTargetPath(Member member) {
+        String base = Strings.nullToEmpty(to);
+        if (!base.isEmpty() && !base.endsWith("/")) {
+            base += "/";
+        }
+        return base + member.getPath();
+    }
+
+    @Override
+    public void prepare(@NonNull File contentDir) throws IOException {
+        if (getWhen() != null && !getWhen().matches()) {
+            return;
+        }
+
+        Map<String, String> hashes = new HashMap<String, String>();
+        for (Member member : files) {
+            File targetFile = new File(contentDir, getTargetPath(member));
+            if (member.getHash() != null && !isUserFile() && targetFile.exists()) {
+                hashes.put(member.getPath(), Files.hash(targetFile, hf).toString());
+            }
+        }
+        existingHashes = hashes;
+    }
+
+    @Override
+    public void install(@NonNull Installer installer, @NonNull InstallLog log,
+                        @NonNull UpdateCache cache, @NonNull File contentDir) throws IOException {
+        if (getWhen() != null && !getWhen().matches()) {
+            return;
+        }
+
+        Map<String, File> pending = new LinkedHashMap<String, File>();
+        Map<String, String> expectedHashes = new HashMap<String, String>();
+
+        for (Member member : files) {
+            String targetPath = getTargetPath(member);
+            File targetFile = new File(contentDir, targetPath);
+
+            if (shouldUpdate(cache, member, targetFile)) {
+                pending.put(member.getPath(), targetFile);
+                if (member.getHash() != null) {
+                    expectedHashes.put(member.getPath(), member.getHash());
+                }
+            } else {
+                log.add(targetPath, targetPath);
+            }
+        }
+
+        if (!pending.isEmpty()) {
+            long size = this.size;
+            if (size <= 0) {
+                size = 10 * 1024;
+            }
+
+            URL url = concat(getManifest().getObjectsUrl(), getLocation());
+            File tempFile = installer.getDownloader().download(url, getImpliedVersion(), size, location);
+            installer.queue(new ArchiveExtract(log, tempFile, pending, expectedHashes));
+        }
+    }
+
+    private boolean shouldUpdate(UpdateCache cache, Member member, File targetFile) throws IOException {
+        if (targetFile.exists() && isUserFile()) {
+            return false;
+        }
+
+        if (!targetFile.exists()) {
+            return true;
+        }
+
+        String memberVersion = member.getHash() != null ? member.getHash() : getImpliedVersion();
+
+        if (member.getHash() != null) {
+            String existingHash = existingHashes != null ? existingHashes.get(member.getPath()) : null;
+            if (existingHash == null) {
+                existingHash = Files.hash(targetFile, hf).toString();
+            }
+            if (existingHash.equalsIgnoreCase(member.getHash())) {
+                return false;
+            }
+        }
+
+        return cache.mark(FilenameUtils.normalize(getTargetPath(member)), memberVersion);
+    }
+
+    @Data
+    public static class Member {
+
+        private String path;
+        private String hash;
+
+    }
+
+}
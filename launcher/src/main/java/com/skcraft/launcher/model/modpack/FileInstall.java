@@ -10,6 +10,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import com.google.common.io.Files;
+import com.skcraft.launcher.install.FilePatcher;
 import com.skcraft.launcher.install.InstallLog;
 import com.skcraft.launcher.install.InstallLogFileMover;
 import com.skcraft.launcher.install.Installer;
@@ -22,6 +23,7 @@ import org.apache.commons.io.FilenameUtils;
 import java.io.File;
 import java.io.IOException;
 import java.net.URL;
+import java.util.List;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.skcraft.launcher.LauncherUtils.concat;
@@ -37,6 +39,9 @@ public class FileInstall extends ManifestEntry {
     private String to;
     private long size;
     private boolean userFile;
+    private List<FilePatch> patches;
+    @JsonIgnore
+    private String existingHash;
 
     @JsonIgnore
     public String getImpliedVersion() {
@@ -48,6 +53,18 @@ public class FileInstall extends ManifestEntry {
         return checkNotNull(this.to != null ? this.to : location);
     }
 
+    @Override
+    public void prepare(@NonNull File contentDir) throws IOException {
+        if (getWhen() != null && !getWhen().matches()) {
+            return;
+        }
+
+        File targetFile = new File(contentDir, getTargetPath());
+        if (hash != null && !isUserFile() && targetFile.exists()) {
+            existingHash = Files.hash(targetFile, hf).toString();
+        }
+    }
+
     @Override
     public void install(@NonNull Installer installer, @NonNull InstallLog log,
                         @NonNull UpdateCache cache, @NonNull File contentDir) throws IOException {
@@ -66,8 +83,16 @@ public class FileInstall extends ManifestEntry {
                 size = 10 * 1024;
             }
 
-            File tempFile = installer.getDownloader().download(url, fileVersion, size, to);
-            installer.queue(new InstallLogFileMover(log, tempFile, targetFile));
+            FilePatch patch = findPatch(targetFile);
+            if (patch != null) {
+                URL patchUrl = concat(getManifest().getObjectsUrl(), patch.getLocation());
+                File patchFile = installer.getDownloader().downloadOptional(
+                        patchUrl, fileVersion + ":" + patch.getFrom(), patch.getSize(), targetFile.getName() + " (patch)");
+                installer.queue(new FilePatcher(log, targetFile, patchFile, hash, url));
+            } else {
+                File tempFile = installer.getDownloader().download(url, fileVersion, size, to);
+                installer.queue(new InstallLogFileMover(log, tempFile, targetFile));
+            }
         } else {
             log.add(to, to);
         }
@@ -83,8 +108,7 @@ public class FileInstall extends ManifestEntry {
         }
 
         if (hash != null) {
-            String existingHash = Files.hash(targetFile, hf).toString();
-            if (existingHash.equalsIgnoreCase(hash)) {
+            if (getExistingHash(targetFile).equalsIgnoreCase(hash)) {
                 return false;
             }
         }
@@ -92,4 +116,34 @@ public class FileInstall extends ManifestEntry {
         return cache.mark(FilenameUtils.normalize(getTargetPath()), getImpliedVersion());
     }
 
+    /**
+     * Find a patch that applies to the existing copy of the file.
+     *
+     * @param targetFile the existing file
+     * @return a patch, or null if there is none
+     * @throws IOException on I/O error
+     */
+    private FilePatch findPatch(File targetFile) throws IOException {
+        if (patches == null || patches.isEmpty() || hash == null || isUserFile() || !targetFile.exists()) {
+            return null;
+        }
+
+        String existingHash = getExistingHash(targetFile);
+        for (FilePatch patch : patches) {
+            if (patch.getFrom() != null && patch.getLocation() != null
+                    && patch.getFrom().equalsIgnoreCase(existingHash)) {
+                return patch;
+            }
+        }
+
+        return null;
+    }
+
+    private String getExistingHash(File targetFile) throws IOException {
+        if (existingHash == null) {
+            existingHash = Files.hash(targetFile, hf).toString();
+        }
+        return existingHash;
+    }
+
 }
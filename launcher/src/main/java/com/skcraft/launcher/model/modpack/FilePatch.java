@@ -0,0 +1,22 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.model.modpack;
+
+import lombok.Data;
+
+/**
+ * A binary patch that turns a previous version of a file (identified by its
+ * hash) into the version described by the owning {@link FileInstall}.
+ */
+@Data
+public class FilePatch {
+
+    private String from;
+    private String location;
+    private long size;
+
+}
@@ -15,6 +15,8 @@ import java.util.List;
 public class LaunchModifier {
 
     private List<String> flags;
+    private boolean classDataSharing;
+    private TuningProfile tuning;
 
     public void modify(JavaProcessBuilder builder) {
         if (flags != null) {
@@ -23,7 +23,8 @@ import java.io.File;
         property = "type",
         defaultImpl = FileInstall.class)
 @JsonSubTypes({
-        @JsonSubTypes.Type(value = FileInstall.class, name = "file")
+        @JsonSubTypes.Type(value = FileInstall.class, name = "file"),
+        @JsonSubTypes.Type(value = ArchiveInstall.class, name = "archive")
 })
 @Data
 @ToString(exclude = "manifest")
@@ -33,6 +34,19 @@ public abstract class ManifestEntry {
     private Manifest manifest;
     private Condition when;
 
+    /**
+     * Perform any expensive, read-only work (such as hashing an existing
+     * file) ahead of {@link #install(Installer, InstallLog, UpdateCache, File)}.
+     * </p>
+     * This may be called concurrently for different entries, so it must not
+     * queue downloads or touch the install log or update cache.
+     *
+     * @param contentDir the content directory
+     * @throws Exception on error
+     */
+    public void prepare(File contentDir) throws Exception {
+    }
+
     public abstract void install(Installer installer, InstallLog log, UpdateCache cache, File contentDir) throws Exception;
 
 }
@@ -0,0 +1,74 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.model.modpack;
+
+import lombok.Data;
+
+/**
+ * Garbage collector and memory tuning settings for the game JVM.
+ * </p>
+ * The launcher generates a profile for every launch, and a modpack can
+ * override any part of it from its launch settings. Settings that are left
+ * out (null) keep the generated value.
+ */
+@Data
+public class TuningProfile {
+
+    public static final String G1 = "g1";
+    public static final String PARALLEL = "parallel";
+    public static final String CMS = "cms";
+    public static final String SHENANDOAH = "shenandoah";
+    public static final String ZGC = "zgc";
+    public static final String DEFAULT = "default";
+
+    private Boolean enabled;
+    private String collector;
+    private Integer regionSize;
+    private Integer maxPauseMillis;
+    private Integer parallelGcThreads;
+    private Integer concGcThreads;
+    private Boolean stringDeduplication;
+    private Boolean largePages;
+
+    /**
+     * Replace the settings of this profile with the ones that are set in
+     * the given profile.
+     *
+     * @param other the profile with overrides, or null
+     */
+    public void override(TuningProfile other) {
+        if (other == null) {
+            return;
+        }
+
+        if (other.enabled != null) {
+            enabled = other.enabled;
+        }
+        if (other.collector != null) {
+            collector = other.collector;
+        }
+        if (other.regionSize != null) {
+            regionSize = other.regionSize;
+        }
+        if (other.maxPauseMillis != null) {
+            maxPauseMillis = other.maxPauseMillis;
+        }
+        if (other.parallelGcThreads != null) {
+            parallelGcThreads = other.parallelGcThreads;
+        }
+        if (other.concGcThreads != null) {
+            concGcThreads = other.concGcThreads;
+        }
+        if (other.stringDeduplication != null) {
+            stringDeduplication = other.stringDeduplication;
+        }
+        if (other.largePages != null) {
+            largePages = other.largePages;
+        }
+    }
+
+}
@@ -0,0 +1,126 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.persistence;
+
+import com.google.common.io.ByteSink;
+
+import java.io.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Writes to a temporary file next to the target file and moves it over the
+ * target when the stream is closed, so that the target never contains a
+ * partial write.
+ * </p>
+ * If writing fails, the temporary file is deleted and the target is left
+ * alone.
+ */
+class AtomicFileByteSink extends ByteSink {
+
+    private final File file;
+
+    public AtomicFileByteSink(File file) {
+        this.file = file;
+    }
+
+    @Override
+    public OutputStream openStream() throws IOException {
+        File temp = File.createTempFile(file.getName() + ".", ".tmp", file.getParentFile());
+        try {
+            return new ReplacingOutputStream(new FileOutputStream(temp), temp);
+        } catch (IOException e) {
+            temp.delete();
+            throw e;
+        }
+    }
+
+    private class ReplacingOutputStream extends FilterOutputStream {
+        private final FileOutputStream fos;
+        private final File temp;
+        private boolean failed;
+        private boolean closed;
+
+        private ReplacingOutputStream(FileOutputStream out, File temp) {
+            super(out);
+            this.fos = out;
+            this.temp = temp;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            try {
+                out.write(b);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                if (!failed) {
+                    fos.flush();
+                    fos.getFD().sync();
+                }
+            } catch (IOException e) {
+                failed = true;
+                throw e;
+            } finally {
+                fos.close();
+                if (failed) {
+                    temp.delete();
+                }
+            }
+
+            // A failed write leaves the old file in place
+            if (failed) {
+                return;
+            }
+
+            try {
+                try {
+                    Files.move(temp.toPath(), file.toPath(),
+                            StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                temp.delete();
+                throw e;
+            }
+        }
+    }
+
+}
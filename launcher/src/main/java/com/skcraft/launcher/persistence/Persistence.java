@@ -15,7 +15,13 @@ import lombok.NonNull;
 import lombok.extern.java.Log;
 
 import java.io.*;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 /**
@@ -27,13 +33,44 @@ import java.util.logging.Level;
  * <pre>config = Persistence.load(file, Configuration.class);
  * config.changeSomething();
  * Persistence.commit(config);</pre>
+ * </p>
+ * Files are replaced atomically, so a crash during a save leaves the
+ * previous version in place. Saves made through
+ * {@link #commitAndForget(Object)} are written behind on a background
+ * thread, and several saves of the same object in a short time are
+ * written once.
  */
 @Log
 public final class Persistence {
 
+    private static final long WRITE_DELAY = 500;
+
     private static final ObjectMapper mapper = new ObjectMapper();
     private static final WeakHashMap<Object, ByteSink> bound =
             new WeakHashMap<Object, ByteSink>();
+    private static final Map<ByteSink, PendingWrite> pending = new LinkedHashMap<ByteSink, PendingWrite>();
+    private static final Object writeLock = new Object();
+    private static boolean writeScheduled;
+
+    private static final ScheduledExecutorService writer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Persistence writer");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private static final Runnable writePending = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(writePending, "Persistence flush"));
+    }
 
     private Persistence() {
     }
@@ -57,33 +94,89 @@ public final class Persistence {
      * @throws java.io.IOException on save error
      */
     public static void commit(@NonNull Object object) throws IOException {
-        ByteSink sink;
-        synchronized (bound) {
-            sink = bound.get(object);
-            if (sink == null) {
-                throw new IOException("Cannot persist unbound object: " + object);
+        ByteSink sink = getSink(object);
+
+        synchronized (writeLock) {
+            synchronized (pending) {
+                pending.remove(sink);
             }
-        }
 
-        Closer closer = Closer.create();
-        try {
-            OutputStream os = closer.register(sink.openBufferedStream());
-            mapper.writeValue(os, object);
-        } finally {
-            closer.close();
+            write(sink, mapper.writeValueAsBytes(object));
         }
     }
 
     /**
-     * Save an object to file, and send all errors to the log.
+     * Save an object to file in the background, and send all errors to
+     * the log.
+     * </p>
+     * The object is serialized right away, on the calling thread, so the
+     * caller can keep changing it. The data is written shortly after the
+     * first of any number of calls for the same object, and only the data of
+     * the last call is written. Call {@link #flush()} to wait for the write.
      *
      * @param object the object
      */
     public static void commitAndForget(@NonNull Object object)  {
+        ByteSink sink;
+        byte[] data;
         try {
-            commit(object);
+            sink = getSink(object);
+            data = mapper.writeValueAsBytes(object);
         } catch (IOException e) {
             log.log(Level.WARNING, "Failed to save " + object.getClass() + ": " + object.toString(), e);
+            return;
+        }
+
+        synchronized (pending) {
+            pending.put(sink, new PendingWrite(object.getClass(), data));
+            if (!writeScheduled) {
+                writeScheduled = true;
+                writer.schedule(writePending, WRITE_DELAY, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Write every object that was saved with {@link #commitAndForget(Object)}
+     * and has not been written yet, waiting for any write in progress.
+     */
+    public static void flush() {
+        synchronized (writeLock) {
+            Map<ByteSink, PendingWrite> writes;
+            synchronized (pending) {
+                writes = new LinkedHashMap<ByteSink, PendingWrite>(pending);
+                pending.clear();
+                writeScheduled = false;
+            }
+
+            for (Map.Entry<ByteSink, PendingWrite> entry : writes.entrySet()) {
+                PendingWrite write = entry.getValue();
+                try {
+                    write(entry.getKey(), write.data);
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to save " + write.type, e);
+                }
+            }
+        }
+    }
+
+    private static ByteSink getSink(Object object) throws IOException {
+        synchronized (bound) {
+            ByteSink sink = bound.get(object);
+            if (sink == null) {
+                throw new IOException("Cannot persist unbound object: " + object);
+            }
+            return sink;
+        }
+    }
+
+    private static void write(ByteSink sink, byte[] data) throws IOException {
+        Closer closer = Closer.create();
+        try {
+            OutputStream os = closer.register(sink.openStream());
+            os.write(data);
+        } finally {
+            closer.close();
         }
     }
 
@@ -167,7 +260,7 @@ public final class Persistence {
      */
     public static <V> V load(File file, Class<V> cls, boolean returnNull) {
         ByteSource source = Files.asByteSource(file);
-        ByteSink sink = new MkdirByteSink(Files.asByteSink(file), file.getParentFile());
+        ByteSink sink = new MkdirByteSink(new AtomicFileByteSink(file), file.getParentFile());
 
         Scrambled scrambled = cls.getAnnotation(Scrambled.class);
         if (cls.getAnnotation(Scrambled.class) != null) {
@@ -175,8 +268,24 @@ public final class Persistence {
             sink = new ScramblingSinkFilter(sink, scrambled.value());
         }
 
+        return load(source, sink, cls, returnNull);
+    }
+
+    /**
+     * Read an object from a byte source and bind it to a byte sink.
+     *
+     * @param source the byte source
+     * @param sink the byte sink
+     * @param cls the class
+     * @param returnNull true to return null if the object could not be loaded
+     * @param <V> the type of class
+     * @return an object
+     */
+    public static <V> V load(ByteSource source, ByteSink sink, Class<V> cls, boolean returnNull) {
         V object = read(source, cls, returnNull);
-        Persistence.bind(object, sink);
+        if (object != null) {
+            Persistence.bind(object, sink);
+        }
         return object;
     }
 
@@ -204,7 +313,20 @@ public final class Persistence {
      */
     public static void write(File file, Object object) throws IOException {
         file.getParentFile().mkdirs();
-        mapper.writeValue(file, object);
+        write(new AtomicFileByteSink(file), mapper.writeValueAsBytes(object));
+    }
+
+    /**
+     * The serialized data of an object that is waiting to be written.
+     */
+    private static class PendingWrite {
+        private final Class<?> type;
+        private final byte[] data;
+
+        private PendingWrite(Class<?> type, byte[] data) {
+            this.type = type;
+            this.data = data;
+        }
     }
 
 }
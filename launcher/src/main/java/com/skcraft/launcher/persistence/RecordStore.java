@@ -0,0 +1,486 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.persistence;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.ByteSink;
+import com.google.common.io.ByteSource;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.extern.java.Log;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.zip.CRC32;
+
+/**
+ * An embedded key-value store kept in a single append-only file.
+ * </p>
+ * Every change appends records to the end of the file, so the cost of a
+ * change depends only on the size of the change. Each record carries a
+ * checksum, and a record that was cut short by a crash is dropped the next
+ * time the file is opened. When most of the file is made of replaced or
+ * removed records, the live records are copied to a new file that then
+ * replaces the old one.
+ * </p>
+ * The file is locked while it is open, so only one process can use it at a
+ * time. Methods of this class are thread-safe.
+ */
+@Log
+public class RecordStore implements Closeable {
+
+    private static final int MAGIC = 0x534b5253;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int RECORD_OVERHEAD = 12;
+    private static final int MAX_KEY_LENGTH = 4096;
+    private static final long MIN_COMPACT_SIZE = 1024 * 1024;
+
+    @Getter private final File file;
+    private final TreeMap<String, Location> index = new TreeMap<String, Location>();
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private FileLock lock;
+    private long end;
+    private long liveSize;
+
+    /**
+     * Open a store, creating the file if it does not exist.
+     *
+     * @param file the file
+     * @throws IOException if the file can't be opened or is in use
+     */
+    public RecordStore(@NonNull File file) throws IOException {
+        this.file = file;
+        open();
+    }
+
+    /**
+     * Check whether there is a record for a key.
+     *
+     * @param key the key
+     * @return true if there is a record
+     */
+    public synchronized boolean contains(@NonNull String key) {
+        return index.containsKey(key);
+    }
+
+    /**
+     * Get the keys that start with the given prefix, in order.
+     *
+     * @param prefix the prefix
+     * @return a list of keys
+     */
+    public synchronized List<String> keys(@NonNull String prefix) {
+        return new ArrayList<String>(index.subMap(prefix, prefix + Character.MAX_VALUE).keySet());
+    }
+
+    /**
+     * Get the value of a record.
+     *
+     * @param key the key
+     * @return the value, or null if there is no record
+     * @throws IOException on I/O error
+     */
+    public synchronized byte[] get(@NonNull String key) throws IOException {
+        checkOpen();
+
+        Location location = index.get(key);
+        if (location == null) {
+            return null;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(location.valueLength);
+        readFully(channel, buffer, location.getValueOffset());
+        return buffer.array();
+    }
+
+    /**
+     * Set the value of a record.
+     *
+     * @param key the key
+     * @param value the value
+     * @throws IOException on I/O error
+     */
+    public void put(@NonNull String key, @NonNull byte[] value) throws IOException {
+        putAll(Collections.singletonMap(key, value));
+    }
+
+    /**
+     * Remove a record.
+     *
+     * @param key the key
+     * @throws IOException on I/O error
+     */
+    public void remove(@NonNull String key) throws IOException {
+        putAll(Collections.<String, byte[]>singletonMap(key, null));
+    }
+
+    /**
+     * Set or remove several records with a single write, in the iteration
+     * order of the map. A null value removes the record.
+     * </p>
+     * If the write is cut short, the records before the cut are kept, so
+     * records that the others depend on should come first.
+     *
+     * @param records a map of keys to values
+     * @throws IOException on I/O error
+     */
+    public synchronized void putAll(@NonNull Map<String, byte[]> records) throws IOException {
+        checkOpen();
+
+        List<byte[]> keys = new ArrayList<byte[]>(records.size());
+        int size = 0;
+        for (Map.Entry<String, byte[]> entry : records.entrySet()) {
+            byte[] key = entry.getKey().getBytes(Charsets.UTF_8);
+            if (key.length == 0 || key.length > MAX_KEY_LENGTH) {
+                throw new IllegalArgumentException("Invalid key: " + entry.getKey());
+            }
+            if (entry.getValue() == null && !index.containsKey(entry.getKey())) {
+                key = null;
+            } else {
+                size += RECORD_OVERHEAD + key.length + (entry.getValue() != null ? entry.getValue().length : 0);
+            }
+            keys.add(key);
+        }
+
+        if (size == 0) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        Map<String, Location> added = new LinkedHashMap<String, Location>();
+        int i = 0;
+        for (Map.Entry<String, byte[]> entry : records.entrySet()) {
+            byte[] key = keys.get(i++);
+            if (key != null) {
+                long offset = end + buffer.position();
+                putRecord(buffer, key, entry.getValue());
+                added.put(entry.getKey(), entry.getValue() != null
+                        ? new Location(offset, key.length, entry.getValue().length)
+                        : null);
+            }
+        }
+
+        buffer.flip();
+        try {
+            writeFully(channel, buffer, end);
+            channel.force(false);
+        } catch (IOException e) {
+            // Whatever was written will fail its checksum or be overwritten
+            channel.truncate(end);
+            throw e;
+        }
+        end += size;
+
+        for (Map.Entry<String, Location> entry : added.entrySet()) {
+            Location previous = entry.getValue() != null
+                    ? index.put(entry.getKey(), entry.getValue())
+                    : index.remove(entry.getKey());
+            if (previous != null) {
+                liveSize -= previous.getRecordSize();
+            }
+            if (entry.getValue() != null) {
+                liveSize += entry.getValue().getRecordSize();
+            }
+        }
+
+        long garbage = end - HEADER_SIZE - liveSize;
+        if (garbage > MIN_COMPACT_SIZE && garbage > liveSize) {
+            try {
+                compact();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Failed to compact " + file.getAbsolutePath(), e);
+            }
+        }
+    }
+
+    /**
+     * Copy the live records to a new file that replaces the current one.
+     *
+     * @throws IOException on I/O error
+     */
+    public synchronized void compact() throws IOException {
+        checkOpen();
+
+        File temp = new File(file.getParentFile(), file.getName() + ".compact");
+        FileOutputStream fos = new FileOutputStream(temp);
+        try {
+            FileChannel out = fos.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            writeFully(out, header, 0);
+
+            long position = HEADER_SIZE;
+            for (Location location : index.values()) {
+                ByteBuffer record = ByteBuffer.allocate(location.getRecordSize());
+                readFully(channel, record, location.offset);
+                record.flip();
+                writeFully(out, record, position);
+                position += location.getRecordSize();
+            }
+
+            out.force(true);
+        } finally {
+            fos.close();
+        }
+
+        long before = end;
+        closeFile();
+        try {
+            try {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            temp.delete();
+            open();
+        }
+
+        log.info("Compacted " + file.getAbsolutePath() + " from " + before + " to " + end + " bytes");
+    }
+
+    /**
+     * Get a byte source that reads the value of a record. Opening a stream
+     * throws {@link FileNotFoundException} if there is no record.
+     *
+     * @param key the key
+     * @return a byte source
+     */
+    public ByteSource asByteSource(@NonNull final String key) {
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                byte[] value = get(key);
+                if (value == null) {
+                    throw new FileNotFoundException("No record for " + key + " in " + file.getAbsolutePath());
+                }
+                return new ByteArrayInputStream(value);
+            }
+        };
+    }
+
+    /**
+     * Get a byte sink that sets the value of a record when the stream is
+     * closed.
+     *
+     * @param key the key
+     * @return a byte sink
+     */
+    public ByteSink asByteSink(@NonNull final String key) {
+        return new ByteSink() {
+            @Override
+            public OutputStream openStream() throws IOException {
+                return new ByteArrayOutputStream() {
+                    private boolean closed;
+
+                    @Override
+                    public void close() throws IOException {
+                        if (!closed) {
+                            closed = true;
+                            put(key, toByteArray());
+                        }
+                    }
+                };
+            }
+        };
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            closeFile();
+        }
+    }
+
+    private void checkOpen() throws IOException {
+        if (channel == null) {
+            throw new IOException("The store is closed: " + file.getAbsolutePath());
+        }
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            channel = raf.getChannel();
+            try {
+                lock = channel.tryLock();
+            } catch (OverlappingFileLockException e) {
+                lock = null;
+            }
+            if (lock == null) {
+                throw new IOException("The store is in use by another process: " + file.getAbsolutePath());
+            }
+            load();
+        } catch (IOException e) {
+            closeFile();
+            throw e;
+        } catch (RuntimeException e) {
+            closeFile();
+            throw e;
+        }
+    }
+
+    private void load() throws IOException {
+        index.clear();
+        liveSize = 0;
+
+        long length = channel.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+        if (length < HEADER_SIZE) {
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            channel.truncate(0);
+            writeFully(channel, header, 0);
+            channel.force(true);
+            end = HEADER_SIZE;
+            return;
+        }
+
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a record store, or an unsupported version: " + file.getAbsolutePath());
+        }
+
+        // Not closed, because closing it would close the channel
+        channel.position(HEADER_SIZE);
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel), 65536));
+
+        long position = HEADER_SIZE;
+        CRC32 crc = new CRC32();
+        while (position < length) {
+            if (length - position < RECORD_OVERHEAD) {
+                break;
+            }
+
+            int keyLength = in.readInt();
+            int valueLength = in.readInt();
+            if (keyLength <= 0 || keyLength > MAX_KEY_LENGTH || valueLength < -1
+                    || position + RECORD_OVERHEAD + keyLength + Math.max(0, valueLength) > length) {
+                break;
+            }
+
+            byte[] key = new byte[keyLength];
+            byte[] value = valueLength >= 0 ? new byte[valueLength] : null;
+            in.readFully(key);
+            if (value != null) {
+                in.readFully(value);
+            }
+            int checksum = in.readInt();
+
+            crc.reset();
+            crc.update(ByteBuffer.allocate(8).putInt(keyLength).putInt(valueLength).array());
+            crc.update(key);
+            if (value != null) {
+                crc.update(value);
+            }
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+
+            int recordSize = RECORD_OVERHEAD + keyLength + Math.max(0, valueLength);
+            String name = new String(key, Charsets.UTF_8);
+            Location previous = value != null
+                    ? index.put(name, new Location(position, keyLength, valueLength))
+                    : index.remove(name);
+            if (previous != null) {
+                liveSize -= previous.getRecordSize();
+            }
+            if (value != null) {
+                liveSize += recordSize;
+            }
+
+            position += recordSize;
+        }
+
+        if (position < length) {
+            log.warning("Dropping " + (length - position) + " bytes of incomplete or damaged records at the end of "
+                    + file.getAbsolutePath());
+            channel.truncate(position);
+        }
+
+        end = position;
+    }
+
+    private void closeFile() throws IOException {
+        index.clear();
+        try {
+            if (lock != null && lock.isValid()) {
+                lock.release();
+            }
+        } finally {
+            lock = null;
+            channel = null;
+            raf.close();
+        }
+    }
+
+    private static void putRecord(ByteBuffer buffer, byte[] key, byte[] value) {
+        int start = buffer.position();
+        buffer.putInt(key.length);
+        buffer.putInt(value != null ? value.length : -1);
+        buffer.put(key);
+        if (value != null) {
+            buffer.put(value);
+        }
+
+        // The checksum covers the lengths, the key and the value
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), start, buffer.position() - start);
+        buffer.putInt((int) crc.getValue());
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read == -1) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    /**
+     * Where a live record is in the file.
+     */
+    private static class Location {
+        private final long offset;
+        private final int keyLength;
+        private final int valueLength;
+
+        private Location(long offset, int keyLength, int valueLength) {
+            this.offset = offset;
+            this.keyLength = keyLength;
+            this.valueLength = valueLength;
+        }
+
+        private long getValueOffset() {
+            return offset + 8 + keyLength;
+        }
+
+        private int getRecordSize() {
+            return RECORD_OVERHEAD + keyLength + valueLength;
+        }
+    }
+
+}
@@ -0,0 +1,100 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import java.util.Arrays;
+
+/**
+ * An ascending list of absolute line numbers that can be added to at the
+ * end and removed from at the start without copying the whole list.
+ */
+public class LineNumberList {
+
+    private long[] values = new long[64];
+    private int start;
+    private int end;
+
+    /**
+     * Get the number of line numbers in the list.
+     *
+     * @return the size
+     */
+    public int size() {
+        return end - start;
+    }
+
+    /**
+     * Get a line number.
+     *
+     * @param index the index
+     * @return the line number
+     */
+    public long get(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is not in the list");
+        }
+        return values[start + index];
+    }
+
+    /**
+     * Add a line number, which is ignored if it is not greater than the
+     * last number in the list.
+     *
+     * @param number the line number
+     */
+    public void add(long number) {
+        if (end > start && values[end - 1] >= number) {
+            return;
+        }
+
+        if (end == values.length) {
+            if (start > values.length / 2) {
+                System.arraycopy(values, start, values, 0, end - start);
+            } else {
+                values = Arrays.copyOfRange(values, start, values.length * 2 + start);
+            }
+            end -= start;
+            start = 0;
+        }
+
+        values[end++] = number;
+    }
+
+    /**
+     * Remove the line numbers that are less than the given number.
+     *
+     * @param number the line number
+     * @return the number of removed line numbers
+     */
+    public int removeBefore(long number) {
+        int index = indexOf(number);
+        int removed = index >= 0 ? index : -index - 1;
+        start += removed;
+        return removed;
+    }
+
+    /**
+     * Find a line number.
+     *
+     * @param number the line number
+     * @return the index of the number, or <code>(-(insertion point) - 1)</code>
+     *         if it is not in the list
+     */
+    public int indexOf(long number) {
+        int index = Arrays.binarySearch(values, start, end, number);
+        return index >= 0 ? index - start : index + start;
+    }
+
+    /**
+     * Remove all line numbers.
+     */
+    public void clear() {
+        start = 0;
+        end = 0;
+    }
+
+}
@@ -0,0 +1,101 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+/**
+ * The severity of a line in a log, as far as it can be told from the
+ * prefix of the line.
+ */
+public enum LogLevel {
+    INFO,
+    WARN,
+    ERROR;
+
+    private static final int MAX_PREFIX_LENGTH = 100;
+
+    /**
+     * Check whether this level is at least as severe as the given level.
+     *
+     * @param level the level
+     * @return true if at least as severe
+     */
+    public boolean isAtLeast(LogLevel level) {
+        return compareTo(level) >= 0;
+    }
+
+    /**
+     * Classify a line by the level in its prefix, such as
+     * <code>[12:00:00] [Client thread/WARN]:</code> from the game or
+     * <code>[warning]</code> from the launcher.
+     * </p>
+     * Lines of a stack trace have no prefix and get the level of the line
+     * before them.
+     *
+     * @param line the line
+     * @param previous the level of the previous line, or null
+     * @return the level
+     */
+    public static LogLevel classify(String line, LogLevel previous) {
+        if (previous != null && isContinuation(line)) {
+            return previous;
+        }
+
+        int limit = Math.min(line.length(), MAX_PREFIX_LENGTH);
+        int start = line.indexOf('[');
+
+        while (start != -1 && start < limit) {
+            int end = line.indexOf(']', start);
+            if (end == -1) {
+                break;
+            }
+
+            LogLevel level = parse(line, start + 1, end);
+            if (level != null) {
+                return level;
+            }
+
+            start = line.indexOf('[', end);
+        }
+
+        return INFO;
+    }
+
+    private static LogLevel parse(String line, int start, int end) {
+        // The level may follow a thread name or time, as in [main/INFO] or [12:00:00 INFO]
+        String token = line.substring(start, end).trim();
+        token = token.substring(Math.max(token.lastIndexOf('/'), token.lastIndexOf(' ')) + 1);
+        if (token.equalsIgnoreCase("ERROR") || token.equalsIgnoreCase("SEVERE") || token.equalsIgnoreCase("FATAL")) {
+            return ERROR;
+        } else if (token.equalsIgnoreCase("WARN") || token.equalsIgnoreCase("WARNING")) {
+            return WARN;
+        } else if (token.equalsIgnoreCase("INFO")) {
+            return INFO;
+        } else {
+            return null;
+        }
+    }
+
+    private static boolean isContinuation(String line) {
+        if (line.startsWith("Caused by: ")) {
+            return true;
+        }
+
+        // The first line of a stack trace, such as java.io.IOException: message
+        int colon = line.indexOf(':');
+        String name = colon != -1 ? line.substring(0, colon) : line;
+        if (name.indexOf('.') != -1 && name.indexOf(' ') == -1
+                && (name.endsWith("Exception") || name.endsWith("Error") || name.endsWith("Throwable"))) {
+            return true;
+        }
+
+        int i = 0;
+        while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+            i++;
+        }
+        return i > 0 && (line.startsWith("at ", i) || line.startsWith("... ", i));
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import javax.swing.text.AttributeSet;
+
+/**
+ * Stores the most recent lines of a log in a fixed-size ring, along with
+ * the attributes and {@link LogLevel} of each line. Once the model is
+ * full, adding a line replaces the oldest one.
+ * </p>
+ * Every line has an absolute number that does not change when older lines
+ * are removed, so that positions such as a selection stay valid.
+ * </p>
+ * This class is not thread-safe and should only be used from the event
+ * dispatch thread.
+ */
+public class LogModel {
+
+    private final String[] lines;
+    private final AttributeSet[] attributes;
+    private final LogLevel[] levels;
+    private int head;
+    private int count;
+    private long firstLine;
+    private StringBuilder openLine;
+
+    /**
+     * Create a new model.
+     *
+     * @param capacity the maximum number of lines to keep
+     */
+    public LogModel(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+
+        this.lines = new String[capacity];
+        this.attributes = new AttributeSet[capacity];
+        this.levels = new LogLevel[capacity];
+    }
+
+    /**
+     * Get the maximum number of lines that are kept.
+     *
+     * @return the capacity
+     */
+    public int getCapacity() {
+        return lines.length;
+    }
+
+    /**
+     * Get the number of lines.
+     *
+     * @return the number of lines
+     */
+    public int getLineCount() {
+        return count;
+    }
+
+    /**
+     * Get the absolute number of the oldest line that is still kept.
+     *
+     * @return the line number
+     */
+    public long getFirstLine() {
+        return firstLine;
+    }
+
+    /**
+     * Get the absolute number after the newest line.
+     *
+     * @return the line number
+     */
+    public long getEndLine() {
+        return firstLine + count;
+    }
+
+    /**
+     * Get the text of a line, without the line separator.
+     *
+     * @param index the index, from 0 to {@link #getLineCount()}
+     * @return the text
+     */
+    public String getLine(int index) {
+        int slot = slot(index);
+        // The text of an unfinished line is only built when it is asked for
+        if (openLine != null && index == count - 1 && lines[slot].length() != openLine.length()) {
+            lines[slot] = openLine.toString();
+        }
+        return lines[slot];
+    }
+
+    /**
+     * Get the attributes of a line.
+     *
+     * @param index the index, from 0 to {@link #getLineCount()}
+     * @return the attributes, or null
+     */
+    public AttributeSet getAttributes(int index) {
+        return attributes[slot(index)];
+    }
+
+    /**
+     * Get the level of a line.
+     *
+     * @param index the index, from 0 to {@link #getLineCount()}
+     * @return the level
+     */
+    public LogLevel getLevel(int index) {
+        return levels[slot(index)];
+    }
+
+    /**
+     * Get a copy of a range of lines.
+     *
+     * @param from the absolute number of the first line
+     * @param to the absolute number of the last line, exclusive
+     * @return the lines
+     */
+    public String[] getLines(long from, long to) {
+        int start = (int) Math.max(0, from - firstLine);
+        int end = (int) Math.min(count, to - firstLine);
+        String[] copy = new String[Math.max(0, end - start)];
+        for (int i = start; i < end; i++) {
+            copy[i - start] = getLine(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Add text to the end of the log. The text is split into lines, and
+     * text after the last line separator is continued by the next call.
+     *
+     * @param text the text
+     * @param attributes the attributes of new lines, or null
+     */
+    public void append(String text, AttributeSet attributes) {
+        int start = 0;
+        int length = text.length();
+
+        while (start < length) {
+            int end = text.indexOf('\n', start);
+            boolean complete = end != -1;
+            if (!complete) {
+                end = length;
+            }
+
+            String line = text.substring(start, end);
+            if (complete && line.endsWith("\r")) {
+                line = line.substring(0, line.length() - 1);
+            }
+
+            if (openLine != null) {
+                openLine.append(line);
+            } else {
+                add(line, attributes);
+                if (!complete) {
+                    openLine = new StringBuilder(line);
+                }
+            }
+
+            if (complete && openLine != null) {
+                finishOpenLine();
+            }
+
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Get the text of a range of lines, with each line ending in a line
+     * separator.
+     *
+     * @param from the absolute number of the first line
+     * @param to the absolute number of the last line, exclusive
+     * @return the text
+     */
+    public String getText(long from, long to) {
+        int start = (int) Math.max(0, from - firstLine);
+        int end = (int) Math.min(count, to - firstLine);
+        StringBuilder builder = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            builder.append(getLine(i)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Get the text of all lines.
+     *
+     * @return the text
+     */
+    public String getText() {
+        return getText(firstLine, getEndLine());
+    }
+
+    /**
+     * Remove all lines.
+     */
+    public void clear() {
+        firstLine += count;
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = null;
+            attributes[i] = null;
+            levels[i] = null;
+        }
+        head = 0;
+        count = 0;
+        openLine = null;
+    }
+
+    /**
+     * Store the text of the line that was continued over several calls,
+     * and classify it again now that its prefix is complete.
+     */
+    private void finishOpenLine() {
+        int slot = slot(count - 1);
+        lines[slot] = openLine.toString();
+        levels[slot] = LogLevel.classify(lines[slot], count > 1 ? getLevel(count - 2) : null);
+        openLine = null;
+    }
+
+    private void add(String line, AttributeSet attributes) {
+        LogLevel level = LogLevel.classify(line, count > 0 ? getLevel(count - 1) : null);
+
+        if (count == lines.length) {
+            // Overwrite the oldest line
+            lines[head] = line;
+            this.attributes[head] = attributes;
+            levels[head] = level;
+            head = (head + 1) % lines.length;
+            firstLine++;
+        } else {
+            int slot = (head + count) % lines.length;
+            lines[slot] = line;
+            this.attributes[slot] = attributes;
+            levels[slot] = level;
+            count++;
+        }
+    }
+
+    private int slot(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Line " + index + " is not in the log");
+        }
+        return (head + index) % lines.length;
+    }
+
+}
@@ -0,0 +1,206 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Keeps track of the lines of a {@link LogModel} that contain a search
+ * query.
+ * </p>
+ * Lines are searched on a background thread. When the query changes, all
+ * lines are searched again; otherwise only lines added since the last
+ * {@link #update()} are searched. Methods of this class must be called on
+ * the event dispatch thread.
+ */
+public class LogSearch {
+
+    private static final ExecutorService executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "Log search");
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private final LogModel model;
+    private final LineNumberList matches = new LineNumberList();
+    private final List<ChangeListener> listeners = new ArrayList<ChangeListener>();
+    @Getter private String query = "";
+    private long searchedEnd;
+    private int generation;
+    private int pending;
+
+    /**
+     * Create a new search.
+     *
+     * @param model the model
+     */
+    public LogSearch(@NonNull LogModel model) {
+        this.model = model;
+    }
+
+    /**
+     * Add a listener that is called when the matches change.
+     *
+     * @param listener the listener
+     */
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Set the text to search for. The search is case-insensitive.
+     *
+     * @param query the query, or an empty string to stop searching
+     */
+    public void setQuery(@NonNull String query) {
+        if (query.equals(this.query)) {
+            return;
+        }
+
+        this.query = query;
+        generation++;
+        matches.clear();
+        searchedEnd = model.getFirstLine();
+        update();
+        fireChanged();
+    }
+
+    /**
+     * Search the lines that were added to the model since the last call.
+     */
+    public void update() {
+        matches.removeBefore(model.getFirstLine());
+
+        if (query.isEmpty()) {
+            searchedEnd = model.getEndLine();
+            return;
+        }
+
+        // The last searched line may have been continued since
+        long from = Math.max(model.getFirstLine(), searchedEnd - 1);
+        long to = model.getEndLine();
+        if (from >= to) {
+            return;
+        }
+
+        searchedEnd = to;
+        submit(from, model.getLines(from, to));
+    }
+
+    /**
+     * Check whether the search is still running.
+     *
+     * @return true if searching
+     */
+    public boolean isSearching() {
+        return pending > 0;
+    }
+
+    /**
+     * Get the number of matching lines.
+     *
+     * @return the number of lines
+     */
+    public int getMatchCount() {
+        return matches.size();
+    }
+
+    /**
+     * Find the closest matching line after or before the given line.
+     *
+     * @param from the absolute number of the line to start from
+     * @param forward true to search forward
+     * @return the absolute line number, or -1 if there are no matches
+     */
+    public long find(long from, boolean forward) {
+        if (matches.size() == 0) {
+            return -1;
+        }
+
+        int index = matches.indexOf(from);
+        if (forward) {
+            index = index >= 0 ? index + 1 : -index - 1;
+        } else {
+            index = index >= 0 ? index - 1 : -index - 2;
+        }
+
+        return index >= 0 && index < matches.size() ? matches.get(index) : -1;
+    }
+
+    /**
+     * Clear the matches after the model has been cleared.
+     */
+    public void reset() {
+        generation++;
+        matches.clear();
+        searchedEnd = model.getEndLine();
+        fireChanged();
+    }
+
+    private void submit(final long first, final String[] lines) {
+        final int generation = this.generation;
+        final String query = this.query;
+        pending++;
+
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                final List<Long> found = new ArrayList<Long>();
+                for (int i = 0; i < lines.length; i++) {
+                    if (containsIgnoreCase(lines[i], query)) {
+                        found.add(first + i);
+                    }
+                }
+
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        pending--;
+                        if (generation == LogSearch.this.generation) {
+                            for (long number : found) {
+                                matches.add(number);
+                            }
+                            matches.removeBefore(model.getFirstLine());
+                        }
+                        fireChanged();
+                    }
+                });
+            }
+        });
+    }
+
+    private void fireChanged() {
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : listeners) {
+            listener.stateChanged(event);
+        }
+    }
+
+    private static boolean containsIgnoreCase(String text, String query) {
+        int max = text.length() - query.length();
+        for (int i = 0; i <= max; i++) {
+            if (text.regionMatches(true, i, query, 0, query.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+}
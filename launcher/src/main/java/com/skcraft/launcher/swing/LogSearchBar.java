@@ -0,0 +1,177 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import com.skcraft.launcher.util.SharedLocale;
+import lombok.NonNull;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+
+/**
+ * Controls to filter a {@link LogView} by level and to find lines in it.
+ */
+public class LogSearchBar extends LinedBoxPanel {
+
+    private static final int QUERY_DELAY = 250;
+    private static final LogLevel[] FILTERS = { null, LogLevel.WARN, LogLevel.ERROR };
+
+    private final LogView view;
+    private final LogSearch search;
+    private final JComboBox filterCombo = new JComboBox(new String[] {
+            SharedLocale.tr("console.filterAll"),
+            SharedLocale.tr("console.filterWarnings"),
+            SharedLocale.tr("console.filterErrors") });
+    private final JTextField queryText = new JTextField(15);
+    private final JButton previousButton = new JButton(SharedLocale.tr("console.findPrevious"));
+    private final JButton nextButton = new JButton(SharedLocale.tr("console.findNext"));
+    private final JLabel statusLabel = new JLabel();
+    private final Timer queryTimer;
+
+    /**
+     * Create a new search bar.
+     *
+     * @param view the view
+     * @param search the search over the model of the view
+     */
+    public LogSearchBar(@NonNull LogView view, @NonNull LogSearch search) {
+        super(true);
+        this.view = view;
+        this.search = search;
+
+        queryTimer = new Timer(QUERY_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                LogSearchBar.this.search.setQuery(queryText.getText());
+            }
+        });
+        queryTimer.setRepeats(false);
+
+        initComponents();
+    }
+
+    private void initComponents() {
+        setBorder(BorderFactory.createEmptyBorder(4, 4, 4, 4));
+        queryText.setMaximumSize(queryText.getPreferredSize());
+        queryText.setComponentPopupMenu(TextFieldPopupMenu.INSTANCE);
+        filterCombo.setMaximumSize(filterCombo.getPreferredSize());
+        statusLabel.setForeground(Color.GRAY);
+
+        addElement(filterCombo);
+        addGlue();
+        addElement(statusLabel);
+        addElement(new JLabel(SharedLocale.tr("console.find")));
+        addElement(queryText);
+        addElement(previousButton);
+        addElement(nextButton);
+
+        filterCombo.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                view.setFilter(FILTERS[filterCombo.getSelectedIndex()]);
+            }
+        });
+
+        queryText.getDocument().addDocumentListener(new DocumentListener() {
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                queryTimer.restart();
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                queryTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
+
+        queryText.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                queryTimer.stop();
+                search.setQuery(queryText.getText());
+                find(true);
+            }
+        });
+
+        previousButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                find(false);
+            }
+        });
+
+        nextButton.addActionListener(new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                find(true);
+            }
+        });
+
+        search.addChangeListener(new ChangeListener() {
+            @Override
+            public void stateChanged(ChangeEvent e) {
+                updateStatus();
+            }
+        });
+    }
+
+    /**
+     * Select the next or previous matching line that passes the filter,
+     * wrapping around at the end of the log.
+     *
+     * @param forward true to search forward
+     */
+    private void find(boolean forward) {
+        LogModel model = view.getModel();
+        long from = view.getSelectedLine();
+        if (from < 0) {
+            from = forward ? model.getFirstLine() - 1 : model.getEndLine();
+        }
+
+        long found = search.find(from, forward);
+        if (found < 0) {
+            found = search.find(forward ? Long.MIN_VALUE : Long.MAX_VALUE, forward);
+        }
+
+        // Skip matches that are hidden by the filter
+        LogLevel filter = view.getFilter();
+        for (int i = 0; found >= 0 && filter != null && i < search.getMatchCount(); i++) {
+            if (model.getLevel((int) (found - model.getFirstLine())).isAtLeast(filter)) {
+                break;
+            }
+            long next = search.find(found, forward);
+            found = next >= 0 ? next : search.find(forward ? Long.MIN_VALUE : Long.MAX_VALUE, forward);
+        }
+
+        if (found >= 0 && (filter == null || model.getLevel((int) (found - model.getFirstLine())).isAtLeast(filter))) {
+            view.scrollToLine(found);
+        } else {
+            Toolkit.getDefaultToolkit().beep();
+        }
+    }
+
+    private void updateStatus() {
+        if (search.getQuery().isEmpty()) {
+            statusLabel.setText("");
+        } else if (search.isSearching()) {
+            statusLabel.setText(SharedLocale.tr("console.searching"));
+        } else {
+            statusLabel.setText(SharedLocale.tr("console.matches", search.getMatchCount()));
+        }
+    }
+
+}
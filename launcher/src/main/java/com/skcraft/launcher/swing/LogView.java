@@ -0,0 +1,475 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import com.skcraft.launcher.util.SharedLocale;
+import lombok.Getter;
+import lombok.NonNull;
+
+import javax.swing.*;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.StyleConstants;
+import java.awt.*;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+
+/**
+ * Shows the lines of a {@link LogModel}. Only the lines that are visible
+ * are painted, so the cost of a repaint does not depend on the size of
+ * the log.
+ * </p>
+ * Whole lines can be selected with the mouse and copied, and the view
+ * can be limited to lines of a minimum {@link LogLevel}.
+ */
+public class LogView extends JComponent implements Scrollable {
+
+    private static final int TAB_SIZE = 4;
+
+    @Getter private final LogModel model;
+    private int lineHeight;
+    private int ascent;
+    private int maxWidth;
+    private long measuredEnd;
+    private long lastFirstLine;
+    private long anchor = -1;
+    private long lead = -1;
+    @Getter private LogLevel filter;
+    private final LineNumberList rows = new LineNumberList();
+    private long filteredEnd;
+
+    /**
+     * Create a new view.
+     *
+     * @param model the model
+     */
+    public LogView(@NonNull LogModel model) {
+        this.model = model;
+
+        setOpaque(true);
+        setFocusable(true);
+        setBackground(UIManager.getColor("TextArea.background"));
+        setForeground(UIManager.getColor("TextArea.foreground"));
+        setBorder(BorderFactory.createEmptyBorder(2, 3, 2, 3));
+        setFont(new JLabel().getFont());
+
+        initComponents();
+    }
+
+    private void initComponents() {
+        MouseAdapter mouseAdapter = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+
+                requestFocusInWindow();
+                long line = getLineAt(e.getY());
+                if (!e.isShiftDown() || anchor < 0) {
+                    anchor = line;
+                }
+                lead = line;
+                repaint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (!SwingUtilities.isLeftMouseButton(e)) {
+                    return;
+                }
+
+                lead = getLineAt(e.getY());
+                scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+                repaint();
+            }
+        };
+        addMouseListener(mouseAdapter);
+        addMouseMotionListener(mouseAdapter);
+
+        Action copyAction = new AbstractAction(SharedLocale.tr("context.copy")) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                copy();
+            }
+        };
+
+        Action selectAllAction = new AbstractAction(SharedLocale.tr("context.selectAll")) {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                selectAll();
+            }
+        };
+
+        int mask = Toolkit.getDefaultToolkit().getMenuShortcutKeyMask();
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_C, mask), "copy");
+        getInputMap().put(KeyStroke.getKeyStroke(KeyEvent.VK_A, mask), "selectAll");
+        getActionMap().put("copy", copyAction);
+        getActionMap().put("selectAll", selectAllAction);
+
+        JPopupMenu popup = new JPopupMenu();
+        popup.add(copyAction);
+        popup.addSeparator();
+        popup.add(selectAllAction);
+        setComponentPopupMenu(popup);
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        FontMetrics metrics = getFontMetrics(font);
+        lineHeight = metrics.getHeight();
+        ascent = metrics.getAscent();
+        maxWidth = 0;
+        measuredEnd = model != null ? model.getFirstLine() : 0;
+        update();
+    }
+
+    /**
+     * Update the view after the model has changed. If the view was scrolled
+     * to the end, it stays at the end.
+     */
+    public void update() {
+        if (model == null) {
+            return;
+        }
+
+        JViewport viewport = getViewport();
+        boolean atEnd = true;
+        if (viewport != null) {
+            Rectangle visible = viewport.getViewRect();
+            atEnd = visible.y + visible.height >= getHeight() - lineHeight;
+        }
+
+        measureNewLines();
+
+        long removed;
+        if (filter != null) {
+            filterNewLines();
+            removed = rows.removeBefore(model.getFirstLine());
+        } else {
+            removed = model.getFirstLine() - lastFirstLine;
+        }
+        lastFirstLine = model.getFirstLine();
+
+        revalidate();
+        repaint();
+
+        if (viewport != null) {
+            validateScrollPane();
+
+            Point position = viewport.getViewPosition();
+            int maxY = Math.max(0, getHeight() - viewport.getExtentSize().height);
+            if (atEnd) {
+                position.y = maxY;
+            } else {
+                // Keep the same lines in view even though older ones were removed
+                position.y = (int) Math.min(maxY, Math.max(0, position.y - removed * lineHeight));
+            }
+            viewport.setViewPosition(position);
+        }
+    }
+
+    /**
+     * Only show lines of at least the given level.
+     *
+     * @param filter the minimum level, or null to show all lines
+     */
+    public void setFilter(LogLevel filter) {
+        this.filter = filter;
+        rows.clear();
+        filteredEnd = model.getFirstLine();
+        if (filter != null) {
+            filterNewLines();
+        }
+
+        revalidate();
+        repaint();
+        validateScrollPane();
+
+        if (lead >= 0) {
+            scrollToLine(lead);
+        } else {
+            scrollRectToVisible(new Rectangle(0, getHeight() - 1, 1, 1));
+        }
+    }
+
+    /**
+     * Get the absolute number of the line that was last selected.
+     *
+     * @return the line number, or -1 if nothing is selected
+     */
+    public long getSelectedLine() {
+        return lead;
+    }
+
+    /**
+     * Select a line and scroll it into view.
+     *
+     * @param number the absolute line number
+     */
+    public void scrollToLine(long number) {
+        anchor = number;
+        lead = number;
+
+        int row = getRow(number);
+        if (row >= 0) {
+            Rectangle visible = getVisibleRect();
+            scrollRectToVisible(new Rectangle(visible.x, getInsets().top + row * lineHeight, 1, lineHeight));
+        }
+        repaint();
+    }
+
+    /**
+     * Select all lines.
+     */
+    public void selectAll() {
+        int count = getRowCount();
+        if (count > 0) {
+            anchor = getLineNumber(0);
+            lead = getLineNumber(count - 1);
+        }
+        repaint();
+    }
+
+    /**
+     * Copy the selected lines to the clipboard, or all lines if there is
+     * no selection. Lines hidden by the filter are not copied.
+     */
+    public void copy() {
+        long start = anchor >= 0 ? Math.min(anchor, lead) : Long.MIN_VALUE;
+        long end = anchor >= 0 ? Math.max(anchor, lead) : Long.MAX_VALUE;
+        StringBuilder builder = new StringBuilder();
+
+        for (int row = 0; row < getRowCount(); row++) {
+            long number = getLineNumber(row);
+            if (number >= start && number <= end) {
+                builder.append(model.getLine((int) (number - model.getFirstLine()))).append('\n');
+            }
+        }
+
+        Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(builder.toString()), null);
+    }
+
+    /**
+     * Remove the selection and forget the sizes of removed lines. Should be
+     * called after the model is cleared.
+     */
+    public void reset() {
+        anchor = -1;
+        lead = -1;
+        maxWidth = 0;
+        measuredEnd = model.getFirstLine();
+        lastFirstLine = model.getFirstLine();
+        rows.clear();
+        filteredEnd = model.getFirstLine();
+        update();
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        if (isPreferredSizeSet() || model == null) {
+            return super.getPreferredSize();
+        }
+
+        Insets insets = getInsets();
+        return new Dimension(
+                maxWidth + insets.left + insets.right,
+                getRowCount() * lineHeight + insets.top + insets.bottom);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+        Insets insets = getInsets();
+        int count = getRowCount();
+        int first = Math.max(0, (clip.y - insets.top) / lineHeight);
+        int last = Math.min(count, (clip.y + clip.height - insets.top) / lineHeight + 1);
+
+        long selectionStart = Math.min(anchor, lead);
+        long selectionEnd = Math.max(anchor, lead);
+        Color selectionBackground = UIManager.getColor("TextArea.selectionBackground");
+        Color selectionForeground = UIManager.getColor("TextArea.selectionForeground");
+        Font font = getFont();
+        Font boldFont = font.deriveFont(Font.BOLD);
+
+        for (int i = first; i < last; i++) {
+            int y = insets.top + i * lineHeight;
+            long number = getLineNumber(i);
+            int index = (int) (number - model.getFirstLine());
+            boolean selected = anchor >= 0 && number >= selectionStart && number <= selectionEnd;
+            AttributeSet attributes = model.getAttributes(index);
+
+            if (selected) {
+                g.setColor(selectionBackground);
+                g.fillRect(clip.x, y, clip.width, lineHeight);
+            }
+
+            if (selected && selectionForeground != null) {
+                g.setColor(selectionForeground);
+            } else if (attributes != null && attributes.isDefined(StyleConstants.Foreground)) {
+                g.setColor(StyleConstants.getForeground(attributes));
+            } else {
+                g.setColor(getForeground());
+            }
+
+            g.setFont(attributes != null && StyleConstants.isBold(attributes) ? boldFont : font);
+            g.drawString(expandTabs(model.getLine(index)), insets.left, y + ascent);
+        }
+    }
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return getPreferredSize();
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? lineHeight : 16;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction) {
+        if (orientation == SwingConstants.VERTICAL) {
+            return Math.max(lineHeight, visibleRect.height - lineHeight);
+        } else {
+            return visibleRect.width;
+        }
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getWidth() > getPreferredSize().width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        Container parent = getParent();
+        return parent instanceof JViewport && parent.getHeight() > getPreferredSize().height;
+    }
+
+    /**
+     * Measure the width of lines that were added or extended since the
+     * last call.
+     */
+    private void measureNewLines() {
+        FontMetrics metrics = getFontMetrics(getFont());
+        long end = model.getEndLine();
+        // The last measured line may have been continued since
+        long from = Math.max(model.getFirstLine(), measuredEnd - 1);
+
+        for (long number = from; number < end; number++) {
+            String line = model.getLine((int) (number - model.getFirstLine()));
+            maxWidth = Math.max(maxWidth, metrics.stringWidth(expandTabs(line)));
+        }
+
+        measuredEnd = end;
+    }
+
+    /**
+     * Add the lines that were added since the last call and pass the
+     * filter to the visible rows.
+     */
+    private void filterNewLines() {
+        long end = model.getEndLine();
+        // The level of the last line may have changed if it was continued
+        long from = Math.max(model.getFirstLine(), filteredEnd - 1);
+
+        for (long number = from; number < end; number++) {
+            if (model.getLevel((int) (number - model.getFirstLine())).isAtLeast(filter)) {
+                rows.add(number);
+            }
+        }
+
+        filteredEnd = end;
+    }
+
+    private int getRowCount() {
+        return filter != null ? rows.size() : model.getLineCount();
+    }
+
+    private long getLineNumber(int row) {
+        return filter != null ? rows.get(row) : model.getFirstLine() + row;
+    }
+
+    /**
+     * Get the row of a line, or the row of the next visible line if the
+     * line is hidden by the filter.
+     *
+     * @param number the absolute line number
+     * @return the row, or -1 if there are no rows
+     */
+    private int getRow(long number) {
+        int count = getRowCount();
+        if (count == 0) {
+            return -1;
+        }
+
+        int row;
+        if (filter != null) {
+            row = rows.indexOf(number);
+            if (row < 0) {
+                row = -row - 1;
+            }
+        } else {
+            row = (int) Math.max(0, number - model.getFirstLine());
+        }
+        return Math.min(row, count - 1);
+    }
+
+    private long getLineAt(int y) {
+        int count = getRowCount();
+        if (count == 0) {
+            return -1;
+        }
+
+        int row = Math.max(0, (y - getInsets().top) / lineHeight);
+        return getLineNumber(Math.min(row, count - 1));
+    }
+
+    private void validateScrollPane() {
+        JViewport viewport = getViewport();
+        if (viewport != null && viewport.getParent() != null) {
+            viewport.getParent().validate();
+        }
+    }
+
+    private JViewport getViewport() {
+        Container parent = getParent();
+        return parent instanceof JViewport ? (JViewport) parent : null;
+    }
+
+    private static String expandTabs(String line) {
+        if (line.indexOf('\t') == -1) {
+            return line;
+        }
+
+        StringBuilder builder = new StringBuilder(line.length() + TAB_SIZE * 2);
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '\t') {
+                do {
+                    builder.append(' ');
+                } while (builder.length() % TAB_SIZE != 0);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+}
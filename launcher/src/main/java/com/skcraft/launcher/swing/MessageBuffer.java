@@ -0,0 +1,123 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import lombok.Data;
+
+import javax.swing.text.AttributeSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded queue of pending log text that any number of threads can add to
+ * without blocking, and that is drained in batches.
+ * </p>
+ * When more text is pending than the buffer can hold, new text is dropped
+ * and counted so that the reader can report how much was lost.
+ */
+public class MessageBuffer {
+
+    private final Queue<Entry> queue = new ConcurrentLinkedQueue<Entry>();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final long capacity;
+
+    /**
+     * Create a new buffer.
+     *
+     * @param capacity the maximum number of pending characters
+     */
+    public MessageBuffer(long capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Add text to the buffer.
+     *
+     * @param text the text
+     * @param attributes the attributes, or null
+     * @return false if the buffer was full and the text was dropped
+     */
+    public boolean offer(String text, AttributeSet attributes) {
+        int length = text.length();
+        if (pending.addAndGet(length) > capacity) {
+            pending.addAndGet(-length);
+            dropped.addAndGet(length);
+            return false;
+        }
+
+        queue.add(new Entry(text, attributes));
+        return true;
+    }
+
+    /**
+     * Move pending entries into the given list, merging consecutive entries
+     * that have the same attributes.
+     *
+     * @param to the list to add to
+     * @param maxLength the approximate maximum number of characters to take
+     * @return true if entries remain in the buffer
+     */
+    public boolean drainTo(List<Entry> to, int maxLength) {
+        StringBuilder builder = null;
+        AttributeSet attributes = null;
+        int taken = 0;
+        Entry entry;
+
+        while (taken < maxLength && (entry = queue.poll()) != null) {
+            pending.addAndGet(-entry.getText().length());
+            taken += entry.getText().length();
+
+            if (builder != null && attributes == entry.getAttributes()) {
+                builder.append(entry.getText());
+            } else {
+                if (builder != null) {
+                    to.add(new Entry(builder.toString(), attributes));
+                }
+                builder = new StringBuilder(entry.getText());
+                attributes = entry.getAttributes();
+            }
+        }
+
+        if (builder != null) {
+            to.add(new Entry(builder.toString(), attributes));
+        }
+
+        return !queue.isEmpty();
+    }
+
+    /**
+     * Get and reset the number of characters dropped since the last call.
+     *
+     * @return the number of dropped characters
+     */
+    public long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+
+    /**
+     * Remove all pending entries.
+     */
+    public void clear() {
+        Entry entry;
+        while ((entry = queue.poll()) != null) {
+            pending.addAndGet(-entry.getText().length());
+        }
+    }
+
+    /**
+     * A piece of pending text.
+     */
+    @Data
+    public static class Entry {
+        private final String text;
+        private final AttributeSet attributes;
+    }
+
+}
@@ -7,16 +7,29 @@
 package com.skcraft.launcher.swing;
 
 import com.skcraft.launcher.LauncherUtils;
-import com.skcraft.launcher.util.LimitLinesDocumentListener;
+import com.skcraft.launcher.util.LogRateLimiter;
+import com.skcraft.launcher.util.MultiPatternMatcher;
+import com.skcraft.launcher.util.SharedLocale;
 import com.skcraft.launcher.util.SimpleLogFormatter;
 
 import javax.swing.*;
 import javax.swing.text.*;
 import java.awt.*;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.PrintWriter;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.LogRecord;
@@ -26,16 +39,32 @@ import static org.apache.commons.io.IOUtils.closeQuietly;
 
 /**
  * A simple message log.
+ * </p>
+ * Messages can be logged from any thread. They are queued and added to the
+ * log in batches on the event dispatch thread, at most
+ * {@link #DRAIN_INTERVAL} milliseconds apart, so that noisy processes do not
+ * flood the UI.
  */
 public class MessageLog extends JPanel {
 
     private static final Logger rootLogger = Logger.getLogger("");
+    private static final int DRAIN_INTERVAL = 33;
+    private static final int MAX_DRAIN_LENGTH = 256 * 1024;
+    private static final long MAX_PENDING_LENGTH = 4 * 1024 * 1024;
+    private static final int MAX_QUEUED_RECORDS = 10000;
+    private static final int MAX_RECORD_BATCH = 500;
+    private static final long SUMMARY_INTERVAL = 1000;
     
     private final int numLines;
     private final boolean colorEnabled;
     
-    protected JTextComponent textComponent;
-    protected Document document;
+    protected LogModel model;
+    protected LogView view;
+    protected LogSearch search;
+
+    private final MessageBuffer buffer = new MessageBuffer(MAX_PENDING_LENGTH);
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Timer drainTimer;
 
     private Handler loggerHandler;
     protected final SimpleAttributeSet defaultAttributes = new SimpleAttributeSet();
@@ -57,56 +86,60 @@ public class MessageLog extends JPanel {
         this.debugAttributes = new SimpleAttributeSet();
 
         setLayout(new BorderLayout());
+
+        drainTimer = new Timer(DRAIN_INTERVAL, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                drain();
+            }
+        });
+        drainTimer.setRepeats(false);
         
         initComponents();
     }
 
     private void initComponents() {
-        if (colorEnabled) {
-            JTextPane text = new JTextPane() {
-                @Override
-                public boolean getScrollableTracksViewportWidth() {
-                    return true;
-                }
-            };
-            this.textComponent = text;
-        } else {
-            JTextArea text = new JTextArea();
-            this.textComponent = text;
-            text.setLineWrap(true);
-            text.setWrapStyleWord(true);
-        }
-
-        textComponent.setFont(new JLabel().getFont());
-        textComponent.setEditable(false);
-        textComponent.setComponentPopupMenu(TextFieldPopupMenu.INSTANCE);
-        DefaultCaret caret = (DefaultCaret) textComponent.getCaret();
-        caret.setUpdatePolicy(DefaultCaret.NEVER_UPDATE);
-        document = textComponent.getDocument();
-        document.addDocumentListener(new LimitLinesDocumentListener(numLines, true));
+        model = new LogModel(numLines);
+        view = new LogView(model);
+        search = new LogSearch(model);
         
-        JScrollPane scrollText = new JScrollPane(textComponent);
+        JScrollPane scrollText = new JScrollPane(view);
         scrollText.setBorder(null);
         scrollText.setVerticalScrollBarPolicy(
                 ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
         scrollText.setHorizontalScrollBarPolicy(
-                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+                ScrollPaneConstants.HORIZONTAL_SCROLLBAR_AS_NEEDED);
         
         add(scrollText, BorderLayout.CENTER);
+        add(new LogSearchBar(view, search), BorderLayout.SOUTH);
     }
     
     public String getPastableText() {
-        String text = textComponent.getText().replaceAll("[\r\n]+", "\n");
-        text = text.replaceAll("Session ID is [A-Fa-f0-9]+", "Session ID is [redacted]");
-        return text;
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < model.getLineCount(); i++) {
+            String line = model.getLine(i);
+            if (line.isEmpty()) {
+                continue;
+            }
+            // Only lines that can contain the session ID go through the regex
+            if (line.contains("Session ID is ")) {
+                line = line.replaceAll("Session ID is [A-Fa-f0-9]+", "Session ID is [redacted]");
+            }
+            builder.append(line).append('\n');
+        }
+        return builder.toString();
     }
 
     public void clear() {
-        textComponent.setText("");
+        buffer.clear();
+        model.clear();
+        view.reset();
+        search.reset();
     }
     
     /**
      * Log a message given the {@link javax.swing.text.AttributeSet}.
+     * This method can be called from any thread.
      * 
      * @param line line
      * @param attributes attribute set, or null for none
@@ -117,14 +150,37 @@ public class MessageLog extends JPanel {
                 attributes = highlightedAttributes;
             }
         }
-        
-        try {
-            int offset = document.getLength();
-            document.insertString(offset, line,
-                    (attributes != null && colorEnabled) ? attributes : defaultAttributes);
-            textComponent.setCaretPosition(document.getLength());
-        } catch (BadLocationException ble) {
-        
+
+        buffer.offer(line, (attributes != null && colorEnabled) ? attributes : defaultAttributes);
+
+        if (drainScheduled.compareAndSet(false, true)) {
+            drainTimer.restart();
+        }
+    }
+
+    /**
+     * Add the queued messages to the model. Must be called on the
+     * event dispatch thread.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+
+        List<MessageBuffer.Entry> entries = new ArrayList<MessageBuffer.Entry>();
+        boolean remaining = buffer.drainTo(entries, MAX_DRAIN_LENGTH);
+        long dropped = buffer.takeDropped();
+
+        for (MessageBuffer.Entry entry : entries) {
+            model.append(entry.getText(), entry.getAttributes());
+        }
+        if (dropped > 0) {
+            model.append(SharedLocale.tr("console.outputDropped", dropped), highlightedAttributes);
+        }
+        view.update();
+        search.update();
+
+        // The rest is added on the next tick so that the UI stays responsive
+        if (remaining && drainScheduled.compareAndSet(false, true)) {
+            drainTimer.restart();
         }
     }
     
@@ -166,7 +222,7 @@ public class MessageLog extends JPanel {
      * @param from stream to read
      */
     public void consume(InputStream from) {
-        consume(from, getOutputStream());
+        consume(from, (AttributeSet) null);
     }
 
     /**
@@ -177,7 +233,9 @@ public class MessageLog extends JPanel {
      * @param color color to use
      */
     public void consume(InputStream from, Color color) {
-        consume(from, getOutputStream(color));
+        SimpleAttributeSet attributes = new SimpleAttributeSet();
+        StyleConstants.setForeground(attributes, color);
+        consume(from, attributes);
     }
 
     /**
@@ -185,37 +243,40 @@ public class MessageLog extends JPanel {
      * will be in a separate daemon thread.
      * 
      * @param from stream to read
-     * @param attributes attributes
+     * @param attributes attributes, or null for none
      */
     public void consume(InputStream from, AttributeSet attributes) {
-        consume(from, getOutputStream(attributes));
+        consume(from, attributes, null);
     }
-    
+
     /**
-     * Internal method to consume a stream.
-     * 
-     * @param from stream to consume
-     * @param outputStream console stream to write to
+     * Consume an input stream and print it to the dialog, passing the text
+     * to a scanner as well. The consumer will be in a separate daemon thread.
+     *
+     * @param from stream to read
+     * @param attributes attributes, or null for none
+     * @param scanner the scanner, or null
      */
-    private void consume(InputStream from, ConsoleOutputStream outputStream) {
-        final InputStream in = from;
-        final PrintWriter out = new PrintWriter(outputStream, true);
+    public void consume(InputStream from, final AttributeSet attributes, final MultiPatternMatcher.Scanner scanner) {
+        // The reader keeps partial multi-byte characters between reads
+        final Reader in = new InputStreamReader(from, Charset.defaultCharset());
         Thread thread = new Thread(new Runnable() {
             @Override
             public void run() {
-                byte[] buffer = new byte[1024];
+                char[] buffer = new char[8192];
                 try {
                     int len;
                     while ((len = in.read(buffer)) != -1) {
+                        if (scanner != null) {
+                            scanner.feed(buffer, 0, len);
+                        }
                         String s = new String(buffer, 0, len);
                         System.out.print(s);
-                        out.append(s);
-                        out.flush();
+                        log(s, attributes);
                     }
                 } catch (IOException e) {
                 } finally {
                     closeQuietly(in);
-                    closeQuietly(out);
                 }
             }
         });
@@ -227,7 +288,17 @@ public class MessageLog extends JPanel {
      * Register a global logger listener.
      */
     public void registerLoggerHandler() {
-        loggerHandler = new ConsoleLoggerHandler();
+        registerLoggerHandler(null);
+    }
+
+    /**
+     * Register a global logger listener that limits how many records
+     * each logger may show.
+     *
+     * @param rateLimiter the rate limiter, or null to show all records
+     */
+    public void registerLoggerHandler(LogRateLimiter rateLimiter) {
+        loggerHandler = new ConsoleLoggerHandler(rateLimiter);
         rootLogger.addHandler(loggerHandler);
     }
     
@@ -237,6 +308,7 @@ public class MessageLog extends JPanel {
     public void detachGlobalHandler() {
         if (loggerHandler != null) {
             rootLogger.removeHandler(loggerHandler);
+            loggerHandler.close();
             loggerHandler = null;
         }
     }
@@ -263,23 +335,108 @@ public class MessageLog extends JPanel {
 
     /**
      * Used to send logger messages to the console.
+     * </p>
+     * Records are queued by the logging thread and formatted in batches on
+     * a separate thread, so logging does not wait on formatting or the UI.
      */
-    private class ConsoleLoggerHandler extends Handler {
+    private class ConsoleLoggerHandler extends Handler implements Runnable {
         private final SimpleLogFormatter formatter = new SimpleLogFormatter();
+        private final BlockingQueue<LogRecord> queue = new LinkedBlockingQueue<LogRecord>(MAX_QUEUED_RECORDS);
+        private final AtomicInteger dropped = new AtomicInteger();
+        private final LogRateLimiter rateLimiter;
+        private final Thread thread;
+        private volatile boolean closed;
+
+        private ConsoleLoggerHandler(LogRateLimiter rateLimiter) {
+            this.rateLimiter = rateLimiter;
+            thread = new Thread(this, "Console log formatter");
+            thread.setDaemon(true);
+            thread.start();
+        }
 
         @Override
         public void publish(LogRecord record) {
-            Level level = record.getLevel();
-            Throwable t = record.getThrown();
-            AttributeSet attributes = defaultAttributes;
+            if (closed || !isLoggable(record)) {
+                return;
+            }
+
+            if (rateLimiter != null && !rateLimiter.tryAcquire(record)) {
+                return;
+            }
 
+            if (!queue.offer(record)) {
+                dropped.incrementAndGet();
+            }
+        }
+
+        @Override
+        public void run() {
+            List<LogRecord> batch = new ArrayList<LogRecord>();
+
+            while (!closed) {
+                try {
+                    LogRecord record = queue.poll(SUMMARY_INTERVAL, TimeUnit.MILLISECONDS);
+                    if (record != null) {
+                        batch.add(record);
+                        queue.drainTo(batch, MAX_RECORD_BATCH - 1);
+                        format(batch);
+                        batch.clear();
+                    }
+                } catch (InterruptedException e) {
+                    break;
+                }
+
+                if (rateLimiter != null) {
+                    for (LogRateLimiter.Window window : rateLimiter.takeSummaries(System.currentTimeMillis())) {
+                        log(SharedLocale.tr("console.logSummary", window.getSuppressed(),
+                                getSimpleName(window.getLoggerName())), infoAttributes);
+                    }
+                }
+
+                int count = dropped.getAndSet(0);
+                if (count > 0) {
+                    log(SharedLocale.tr("console.logDropped", count), errorAttributes);
+                }
+            }
+        }
+
+        /**
+         * Format a batch of records, merging consecutive records with the
+         * same attributes into one message.
+         *
+         * @param records the records
+         */
+        private void format(List<LogRecord> records) {
+            StringBuilder builder = new StringBuilder();
+            AttributeSet current = null;
+
+            for (LogRecord record : records) {
+                AttributeSet attributes = getAttributes(record.getLevel());
+                if (attributes != current && builder.length() > 0) {
+                    log(builder.toString(), current);
+                    builder.setLength(0);
+                }
+                current = attributes;
+                builder.append(formatter.format(record));
+            }
+
+            if (builder.length() > 0) {
+                log(builder.toString(), current);
+            }
+        }
+
+        private AttributeSet getAttributes(Level level) {
             if (level.intValue() >= Level.WARNING.intValue()) {
-                attributes = errorAttributes;
+                return errorAttributes;
             } else if (level.intValue() < Level.INFO.intValue()) {
-                attributes = debugAttributes;
+                return debugAttributes;
+            } else {
+                return defaultAttributes;
             }
+        }
 
-            log(formatter.format(record), attributes);
+        private String getSimpleName(String loggerName) {
+            return loggerName.substring(loggerName.lastIndexOf('.') + 1);
         }
 
         @Override
@@ -288,6 +445,8 @@ public class MessageLog extends JPanel {
 
         @Override
         public void close() throws SecurityException {
+            closed = true;
+            thread.interrupt();
         }
     }
     
@@ -0,0 +1,83 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * A small line chart without axes that shows the trend of a series of
+ * values.
+ */
+public class Sparkline extends JComponent {
+
+    private double[] values = new double[0];
+    @Getter @Setter
+    private double minimumMax = 1;
+
+    /**
+     * Create a new sparkline.
+     *
+     * @param color the color of the line
+     */
+    public Sparkline(Color color) {
+        setForeground(color);
+        Dimension size = new Dimension(100, 20);
+        setPreferredSize(size);
+        setMinimumSize(size);
+        setMaximumSize(size);
+    }
+
+    /**
+     * Set the values to show, oldest first.
+     *
+     * @param values the values
+     */
+    public void setValues(double[] values) {
+        this.values = values;
+        repaint();
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+
+        double[] values = this.values;
+        if (values.length < 2) {
+            return;
+        }
+
+        double max = minimumMax;
+        for (double value : values) {
+            max = Math.max(max, value);
+        }
+
+        Insets insets = getInsets();
+        int width = getWidth() - insets.left - insets.right - 1;
+        int height = getHeight() - insets.top - insets.bottom - 1;
+        int[] xs = new int[values.length];
+        int[] ys = new int[values.length];
+
+        for (int i = 0; i < values.length; i++) {
+            xs[i] = insets.left + (int) ((long) i * width / (values.length - 1));
+            ys[i] = insets.top + height - (int) (Math.max(0, values[i]) / max * height);
+        }
+
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            g2.setColor(getForeground());
+            g2.drawPolyline(xs, ys, values.length);
+        } finally {
+            g2.dispose();
+        }
+    }
+
+}
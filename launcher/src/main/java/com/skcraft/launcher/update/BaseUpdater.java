@@ -6,32 +6,40 @@
 package com.skcraft.launcher.update;
 
 import com.google.common.base.Strings;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.skcraft.launcher.AssetsRoot;
 import com.skcraft.launcher.Instance;
 import com.skcraft.launcher.Launcher;
 import com.skcraft.launcher.LauncherException;
+import com.skcraft.launcher.MetadataStore;
 import com.skcraft.launcher.dialog.FeatureSelectionDialog;
 import com.skcraft.launcher.dialog.ProgressDialog;
 import com.skcraft.launcher.install.*;
 import com.skcraft.launcher.model.minecraft.Asset;
-import com.skcraft.launcher.model.minecraft.AssetsIndex;
 import com.skcraft.launcher.model.minecraft.Library;
 import com.skcraft.launcher.model.minecraft.VersionManifest;
 import com.skcraft.launcher.model.modpack.Feature;
 import com.skcraft.launcher.model.modpack.Manifest;
 import com.skcraft.launcher.model.modpack.ManifestEntry;
-import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.util.Environment;
 import com.skcraft.launcher.util.HttpRequest;
+import com.skcraft.launcher.util.JsonStreams;
 import lombok.NonNull;
 import lombok.extern.java.Log;
 
 import javax.swing.*;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.logging.Level;
 
 import static com.skcraft.launcher.LauncherUtils.checkInterrupted;
@@ -54,6 +62,7 @@ public abstract class BaseUpdater {
 
     private static final long JAR_SIZE_ESTIMATE = 5 * 1024 * 1024;
     private static final long LIBRARY_SIZE_ESTIMATE = 3 * 1024 * 1024;
+    private static final int PLANNING_THREAD_LIMIT = 16;
 
     private final Launcher launcher;
     private final Environment environment = Environment.getInstance();
@@ -71,23 +80,20 @@ public abstract class BaseUpdater {
 
     protected Manifest installPackage(@NonNull Installer installer, @NonNull Instance instance) throws Exception {
         final File contentDir = instance.getContentDir();
-        final File logPath = new File(instance.getDir(), "install_log.json");
-        final File cachePath = new File(instance.getDir(), "update_cache.json");
-        final File featuresPath = new File(instance.getDir(), "features.json");
+        final MetadataStore metadata = launcher.getMetadata();
 
-        final InstallLog previousLog = Persistence.read(logPath, InstallLog.class);
+        final InstallLog previousLog = metadata.readInstallLog(instance);
         final InstallLog currentLog = new InstallLog();
         currentLog.setBaseDir(contentDir);
-        final UpdateCache updateCache = Persistence.read(cachePath, UpdateCache.class);
-        final FeatureCache featuresCache = Persistence.read(featuresPath, FeatureCache.class);
+        final UpdateCache updateCache = metadata.readUpdateCache(instance);
+        final FeatureCache featuresCache = metadata.readFeatureCache(instance);
 
+        // The whole manifest is needed before planning, since conditions refer to features by name
         Manifest manifest = HttpRequest
                 .get(instance.getManifestURL())
                 .execute()
                 .expectResponseCode(200)
-                .returnContent()
-                .saveContent(instance.getManifestPath())
-                .asJson(Manifest.class);
+                .readJson(instance.getManifestPath(), Manifest.class);
 
         if (manifest.getMinimumVersion() > Launcher.PROTOCOL_VERSION) {
             throw new LauncherException("Update required", SharedLocale.tr("errors.updateRequiredError"));
@@ -120,7 +126,10 @@ public abstract class BaseUpdater {
             }
         }
 
+        prepareEntries(manifest.getTasks(), contentDir);
+
         for (ManifestEntry entry : manifest.getTasks()) {
+            checkInterrupted();
             entry.install(installer, currentLog, updateCache, contentDir);
         }
 
@@ -135,15 +144,61 @@ public abstract class BaseUpdater {
                     }
                 }
 
-                writeDataFile(logPath, currentLog);
-                writeDataFile(cachePath, updateCache);
-                writeDataFile(featuresPath, featuresCache);
+                try {
+                    metadata.writeInstallLog(instance, currentLog);
+                    metadata.writeUpdateCache(instance, updateCache);
+                    metadata.writeFeatureCache(instance, featuresCache);
+                } catch (IOException e) {
+                    log.log(Level.WARNING, "Failed to save the install state of " + instance.getName(), e);
+                }
             }
         });
 
         return manifest;
     }
 
+    /**
+     * Run the read-only preparation step of every manifest entry on a bounded
+     * pool so that existing files are hashed in parallel. Entries are still
+     * installed serially afterwards, in manifest order, so downloads and
+     * install tasks are queued deterministically.
+     *
+     * @param entries the entries
+     * @param contentDir the content directory
+     * @throws Exception on error
+     */
+    private void prepareEntries(List<ManifestEntry> entries, final File contentDir) throws Exception {
+        int threadCount = Math.max(2, Math.min(PLANNING_THREAD_LIMIT, Runtime.getRuntime().availableProcessors() * 2));
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(threadCount));
+
+        try {
+            List<ListenableFuture<?>> futures = new ArrayList<ListenableFuture<?>>();
+
+            for (final ManifestEntry entry : entries) {
+                futures.add(executor.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() throws Exception {
+                        entry.prepare(contentDir);
+                        return null;
+                    }
+                }));
+            }
+
+            try {
+                Futures.allAsList(futures).get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Exception) {
+                    throw (Exception) cause;
+                }
+                throw e;
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
     protected void installJar(@NonNull Installer installer,
             @NonNull File jarFile,
             @NonNull URL url) throws InterruptedException {
@@ -157,46 +212,58 @@ public abstract class BaseUpdater {
         }
     }
 
-    protected void installAssets(@NonNull Installer installer,
+    protected void installAssets(@NonNull final Installer installer,
             @NonNull VersionManifest versionManifest,
             @NonNull URL indexUrl,
-            @NonNull List<URL> sources) throws IOException, InterruptedException {
-        AssetsRoot assetsRoot = launcher.getAssets();
+            @NonNull final List<URL> sources) throws IOException, InterruptedException {
+        final AssetsRoot assetsRoot = launcher.getAssets();
+
+        // Keep track of duplicates
+        final Set<String> downloading = new HashSet<String>();
 
-        AssetsIndex index = HttpRequest
+        // Plan each asset as soon as it has been received, rather than after the whole index
+        HttpRequest
                 .get(indexUrl)
                 .execute()
                 .expectResponseCode(200)
-                .returnContent()
-                .saveContent(assetsRoot.getIndexPath(versionManifest))
-                .asJson(AssetsIndex.class);
-
-        // Keep track of duplicates
-        Set<String> downloading = new HashSet<String>();
-
-        for (Map.Entry<String, Asset> entry : index.getObjects().entrySet()) {
-            checkInterrupted();
-
-            String hash = entry.getValue().getHash();
-            String path = String.format("%s/%s", hash.subSequence(0, 2), hash);
-            File targetFile = assetsRoot.getObjectPath(entry.getValue());
-
-            if (!targetFile.exists() && !downloading.contains(path)) {
-                List<URL> urls = new ArrayList<URL>();
-                for (URL sourceUrl : sources) {
-                    try {
-                        urls.add(concat(sourceUrl, path));
-                    } catch (MalformedURLException e) {
-                        log.log(Level.WARNING, "Bad source URL for library: " + sourceUrl);
+                .readContent(assetsRoot.getIndexPath(versionManifest), new HttpRequest.ContentReader<Integer>() {
+                    @Override
+                    public Integer read(InputStream in) throws IOException, InterruptedException {
+                        return JsonStreams.forEach(in, "objects", Asset.class, new JsonStreams.Handler<Asset>() {
+                            @Override
+                            public void handle(String name, Asset asset) throws InterruptedException {
+                                checkInterrupted();
+
+                                if (asset != null) {
+                                    installAsset(installer, assetsRoot, sources, downloading, name, asset);
+                                }
+                            }
+                        });
                     }
-                }
+                });
+    }
 
-                File tempFile = installer.getDownloader().download(
-                        urls, "", entry.getValue().getSize(), entry.getKey());
-                installer.queue(new FileMover(tempFile, targetFile));
-                log.info("Fetching " + path + " from " + urls);
-                downloading.add(path);
+    private void installAsset(Installer installer, AssetsRoot assetsRoot, List<URL> sources,
+                              Set<String> downloading, String name, Asset asset) {
+        String hash = asset.getHash();
+        String path = String.format("%s/%s", hash.subSequence(0, 2), hash);
+        File targetFile = assetsRoot.getObjectPath(asset);
+
+        if (!targetFile.exists() && !downloading.contains(path)) {
+            List<URL> urls = new ArrayList<URL>();
+            for (URL sourceUrl : sources) {
+                try {
+                    urls.add(concat(sourceUrl, path));
+                } catch (MalformedURLException e) {
+                    log.log(Level.WARNING, "Bad source URL for library: " + sourceUrl);
+                }
             }
+
+            File tempFile = installer.getDownloader().download(
+                    urls, "", asset.getSize(), name);
+            installer.queue(new FileMover(tempFile, targetFile));
+            log.info("Fetching " + path + " from " + urls);
+            downloading.add(path);
         }
     }
 
@@ -232,13 +299,4 @@ public abstract class BaseUpdater {
         }
     }
 
-    private static void writeDataFile(File path, Object object) {
-        try {
-            Persistence.write(path, object);
-        } catch (IOException e) {
-            log.log(Level.WARNING, "Failed to write to " + path.getAbsolutePath()
-                    + " for object " + object.getClass().getCanonicalName(), e);
-        }
-    }
-
 }
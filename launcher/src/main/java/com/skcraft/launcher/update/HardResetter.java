@@ -8,6 +8,7 @@ package com.skcraft.launcher.update;
 
 import com.skcraft.concurrency.ProgressObservable;
 import com.skcraft.launcher.Instance;
+import com.skcraft.launcher.Launcher;
 import com.skcraft.launcher.LauncherUtils;
 import com.skcraft.launcher.persistence.Persistence;
 import com.skcraft.launcher.util.SharedLocale;
@@ -22,10 +23,12 @@ import java.util.concurrent.Callable;
 
 public class HardResetter implements Callable<Instance>, ProgressObservable {
 
+    private final Launcher launcher;
     private final Instance instance;
     private File currentDir;
 
-    public HardResetter(@NonNull Instance instance) {
+    public HardResetter(@NonNull Launcher launcher, @NonNull Instance instance) {
+        this.launcher = launcher;
         this.instance = instance;
     }
 
@@ -45,7 +48,7 @@ public class HardResetter implements Callable<Instance>, ProgressObservable {
         instance.setUpdatePending(true);
         Persistence.commitAndForget(instance);
 
-        new File(instance.getDir(), "update_cache.json").delete();
+        launcher.getMetadata().removeUpdateCache(instance);
 
         removeDir(new File(instance.getContentDir(), "config"));
         removeDir(new File(instance.getContentDir(), "mods"));
@@ -8,6 +8,7 @@ package com.skcraft.launcher.update;
 
 import com.skcraft.concurrency.ProgressObservable;
 import com.skcraft.launcher.Instance;
+import com.skcraft.launcher.Launcher;
 import com.skcraft.launcher.LauncherException;
 import com.skcraft.launcher.LauncherUtils;
 import com.skcraft.launcher.persistence.Persistence;
@@ -25,9 +26,11 @@ import com.skcraft.launcher.util.SharedLocale;
 
 public class Remover implements Callable<Instance>, ProgressObservable {
 
+    private final Launcher launcher;
     private final Instance instance;
 
-    public Remover(@NonNull Instance instance) {
+    public Remover(@NonNull Launcher launcher, @NonNull Instance instance) {
+        this.launcher = launcher;
         this.instance = instance;
     }
 
@@ -46,6 +49,7 @@ public class Remover implements Callable<Instance>, ProgressObservable {
         instance.setInstalled(false);
         instance.setUpdatePending(true);
         Persistence.commitAndForget(instance);
+        Persistence.flush();
 
         checkInterrupted();
 
@@ -65,6 +69,8 @@ public class Remover implements Callable<Instance>, ProgressObservable {
                      SharedLocale.tr("instanceDeleter.failures", failures.size()));
         }
 
+        launcher.getMetadata().removeInstance(instance);
+
         return instance;
     }
 
@@ -99,7 +99,11 @@ public class Updater extends BaseUpdater implements Callable<Instance>, Progress
 
         if (updateDesired) {
             log.info("Updating " + instance.getTitle() + "...");
-            update(instance);
+            try {
+                update(instance);
+            } finally {
+                installer.cancelDownloads();
+            }
         } else {
             log.info("No update found for " + instance.getTitle());
         }
@@ -145,6 +149,8 @@ public class Updater extends BaseUpdater implements Callable<Instance>, Progress
         // Read manifest
         log.info("Reading package manifest...");
         progress = new DefaultProgress(-1, SharedLocale.tr("instanceUpdater.readingManifest"));
+        // Files are downloaded as soon as they are queued, while the rest of the update is still being read
+        installer.startDownloads();
         Manifest manifest = installPackage(installer, instance);
 
         // Update instance from manifest
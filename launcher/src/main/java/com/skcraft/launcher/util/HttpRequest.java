@@ -16,6 +16,8 @@ import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
 import java.io.*;
 import java.net.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
 
 import static com.skcraft.launcher.LauncherUtils.checkInterrupted;
@@ -280,6 +282,81 @@ public class HttpRequest implements Closeable, ProgressObservable {
         return this;
     }
 
+    /**
+     * Read the result as it arrives while saving it to a file. The file is
+     * only replaced once the whole result has been received.
+     *
+     * @param file the file
+     * @param reader the reader, which does not need to read to the end
+     * @param <T> the type of the result of the reader
+     * @return the result of the reader
+     * @throws java.io.IOException  on I/O error
+     * @throws InterruptedException on interruption
+     */
+    public <T> T readContent(File file, ContentReader<T> reader) throws IOException, InterruptedException {
+        if (inputStream == null) {
+            throw new IllegalArgumentException("No input stream available");
+        }
+
+        file.getParentFile().mkdirs();
+        File tempFile = new File(file.getParentFile(), file.getName() + ".part");
+        FileOutputStream fos = null;
+        BufferedOutputStream bos = null;
+        boolean successful = false;
+
+        try {
+            fos = new FileOutputStream(tempFile);
+            bos = new BufferedOutputStream(fos);
+            SavingInputStream in = new SavingInputStream(new BufferedInputStream(inputStream, READ_BUFFER_SIZE), bos);
+
+            T result = reader.read(in);
+
+            // Save whatever the reader didn't need
+            byte[] data = new byte[READ_BUFFER_SIZE];
+            while (in.read(data) != -1) {
+            }
+
+            bos.close();
+            successful = true;
+            return result;
+        } catch (InterruptedIOException e) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            throw e;
+        } finally {
+            closeQuietly(bos);
+            closeQuietly(fos);
+            close();
+
+            if (successful) {
+                Files.move(tempFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            } else {
+                tempFile.delete();
+            }
+        }
+    }
+
+    /**
+     * Deserialize the result from JSON as it arrives while saving it to a
+     * file, without buffering the whole result in memory.
+     *
+     * @param file the file
+     * @param cls the class
+     * @param <T> the type of class
+     * @return the object
+     * @throws java.io.IOException  on I/O error
+     * @throws InterruptedException on interruption
+     */
+    public <T> T readJson(File file, final Class<T> cls) throws IOException, InterruptedException {
+        return readContent(file, new ContentReader<T>() {
+            @Override
+            public T read(InputStream in) throws IOException {
+                return mapper.readValue(in, cls);
+            }
+        });
+    }
+
     @Override
     public double getProgress() {
         if (contentLength >= 0) {
@@ -418,6 +495,82 @@ public class HttpRequest implements Closeable, ProgressObservable {
         }
     }
 
+    /**
+     * Used with {@link #readContent(File, ContentReader)}.
+     */
+    public interface ContentReader<T> {
+        /**
+         * Read the result.
+         *
+         * @param in the stream of the result, which should not be closed
+         * @return the result
+         * @throws java.io.IOException  on I/O error
+         * @throws InterruptedException on interruption
+         */
+        T read(InputStream in) throws IOException, InterruptedException;
+    }
+
+    /**
+     * Copies everything that is read to an output stream and counts the
+     * bytes read for {@link #getProgress()}.
+     */
+    private class SavingInputStream extends FilterInputStream {
+        private final OutputStream out;
+
+        private SavingInputStream(InputStream in, OutputStream out) {
+            super(in);
+            this.out = out;
+
+            String field = conn.getHeaderField("Content-Length");
+            if (field != null) {
+                try {
+                    contentLength = Long.parseLong(field);
+                } catch (NumberFormatException e) {
+                }
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = in.read();
+            if (b != -1) {
+                out.write(b);
+                readBytes++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("Interrupted while reading " + url);
+            }
+            int read = in.read(b, off, len);
+            if (read > 0) {
+                out.write(b, off, read);
+                readBytes += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            byte[] data = new byte[(int) Math.min(n, READ_BUFFER_SIZE)];
+            int read = read(data, 0, data.length);
+            return Math.max(read, 0);
+        }
+
+        @Override
+        public boolean markSupported() {
+            return false;
+        }
+
+        @Override
+        public void close() {
+            // Closed by the request
+        }
+    }
+
     /**
      * Used to buffer the response in memory.
      */
@@ -0,0 +1,107 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.util;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.NonNull;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads large JSON documents one value at a time, so that each value can be
+ * handled as soon as it has arrived and none of them have to be kept.
+ */
+public final class JsonStreams {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private JsonStreams() {
+    }
+
+    /**
+     * Read the values of one field of a JSON object. If the field is an
+     * object, every field of it is passed to the handler with its name; if
+     * it is an array, every element is passed to the handler with a null
+     * name. Other fields are skipped.
+     *
+     * @param in the stream, which is not closed
+     * @param field the name of the field of the root object
+     * @param type the type of the values
+     * @param handler the handler
+     * @param <V> the type of the values
+     * @return the number of values read
+     * @throws IOException on I/O error or if the document is not valid
+     * @throws InterruptedException if the handler was interrupted
+     */
+    public static <V> int forEach(@NonNull InputStream in, @NonNull String field, @NonNull Class<V> type,
+                                  @NonNull Handler<V> handler) throws IOException, InterruptedException {
+        JsonParser parser = mapper.getFactory().createParser(in);
+        parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+        int count = 0;
+
+        try {
+            expect(parser, parser.nextToken(), JsonToken.START_OBJECT);
+
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+
+                if (!name.equals(field)) {
+                    parser.skipChildren();
+                } else if (token == JsonToken.START_OBJECT) {
+                    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                        String key = parser.getCurrentName();
+                        parser.nextToken();
+                        handler.handle(key, parser.readValueAs(type));
+                        count++;
+                    }
+                } else if (token == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        handler.handle(null, parser.readValueAs(type));
+                        count++;
+                    }
+                } else if (token != JsonToken.VALUE_NULL) {
+                    throw new JsonParseException("Expected an object or array for " + field, parser.getCurrentLocation());
+                }
+            }
+
+            expect(parser, parser.getCurrentToken(), JsonToken.END_OBJECT);
+        } finally {
+            parser.close();
+        }
+
+        return count;
+    }
+
+    private static void expect(JsonParser parser, JsonToken token, JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + " but got " + token, parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * Handles values as they are read.
+     *
+     * @param <V> the type of the values
+     */
+    public interface Handler<V> {
+        /**
+         * Handle a value.
+         *
+         * @param name the name of the value, or null for an element of an array
+         * @param value the value
+         * @throws IOException on I/O error
+         * @throws InterruptedException on interruption
+         */
+        void handle(String name, V value) throws IOException, InterruptedException;
+    }
+
+}
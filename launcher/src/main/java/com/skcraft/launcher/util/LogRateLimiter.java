@@ -0,0 +1,135 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.util;
+
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * Limits how many log records each logger may publish per time window, so
+ * that loggers that report every file during an install do not drown out
+ * everything else.
+ * </p>
+ * Records at {@link Level#WARNING} or above are never limited. Records that
+ * are held back are counted, and the counts can be collected as summaries
+ * once the window of a logger has ended.
+ */
+public class LogRateLimiter {
+
+    private final Map<String, Integer> limits = new HashMap<String, Integer>();
+    private final Map<String, Window> windows = new HashMap<String, Window>();
+    private final long windowLength;
+    private final int defaultLimit;
+
+    /**
+     * Create a new rate limiter.
+     *
+     * @param defaultLimit the number of records per window for loggers
+     *                     without their own limit, or 0 for no limit
+     * @param windowLength the length of a window in milliseconds
+     */
+    public LogRateLimiter(int defaultLimit, long windowLength) {
+        this.defaultLimit = defaultLimit;
+        this.windowLength = windowLength;
+    }
+
+    /**
+     * Set the limit for a logger.
+     *
+     * @param loggerName the name of the logger
+     * @param limit the number of records per window, or 0 for no limit
+     */
+    public synchronized void setLimit(String loggerName, int limit) {
+        limits.put(loggerName, limit);
+    }
+
+    /**
+     * Set the limits for several loggers.
+     *
+     * @param limits a map of logger names to limits
+     */
+    public synchronized void setLimits(Map<String, Integer> limits) {
+        this.limits.putAll(limits);
+    }
+
+    /**
+     * Check whether a record may be published now, and count it if not.
+     *
+     * @param record the record
+     * @return true if the record may be published
+     */
+    public synchronized boolean tryAcquire(LogRecord record) {
+        if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+            return true;
+        }
+
+        String loggerName = String.valueOf(record.getLoggerName());
+        Integer limit = limits.get(loggerName);
+        if (limit == null) {
+            limit = defaultLimit;
+        }
+        if (limit <= 0) {
+            return true;
+        }
+
+        long now = record.getMillis();
+        Window window = windows.get(loggerName);
+        if (window == null || (window.getSuppressed() == 0 && now - window.getStart() >= windowLength)) {
+            window = new Window(loggerName, now);
+            windows.put(loggerName, window);
+        }
+
+        if (window.getCount() < limit) {
+            window.setCount(window.getCount() + 1);
+            return true;
+        } else {
+            window.setSuppressed(window.getSuppressed() + 1);
+            return false;
+        }
+    }
+
+    /**
+     * Collect the loggers whose window has ended with records held back,
+     * and start a new window for each.
+     *
+     * @param now the current time in milliseconds
+     * @return a list of windows with the number of held back records
+     */
+    public synchronized List<Window> takeSummaries(long now) {
+        List<Window> summaries = new ArrayList<Window>();
+        Iterator<Window> it = windows.values().iterator();
+        while (it.hasNext()) {
+            Window window = it.next();
+            if (now - window.getStart() >= windowLength) {
+                if (window.getSuppressed() > 0) {
+                    summaries.add(window);
+                }
+                it.remove();
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * The records of one logger within one window.
+     */
+    @Data
+    public static class Window {
+        private final String loggerName;
+        private final long start;
+        private int count;
+        private int suppressed;
+    }
+
+}
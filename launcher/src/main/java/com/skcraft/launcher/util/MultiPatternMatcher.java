@@ -0,0 +1,221 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.util;
+
+import lombok.NonNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Queue;
+
+/**
+ * Finds any of a set of patterns in a stream of text in a single pass,
+ * using an Aho-Corasick automaton that is compiled once.
+ * </p>
+ * Patterns must be ASCII and are matched without regard to case. Since
+ * the automaton only looks at ASCII characters, text can be fed as
+ * characters or as bytes in any ASCII-compatible encoding, and nothing is
+ * allocated while scanning.
+ */
+public class MultiPatternMatcher {
+
+    private static final int ALPHABET = 128;
+    private static final int[] NONE = new int[0];
+
+    private final int patternCount;
+    private final int[][] transitions;
+    private final int[][] outputs;
+
+    /**
+     * Compile a new matcher.
+     *
+     * @param patterns the patterns
+     */
+    public MultiPatternMatcher(@NonNull List<String> patterns) {
+        this.patternCount = patterns.size();
+
+        // Build the trie
+        List<int[]> gotos = new ArrayList<int[]>();
+        List<int[]> found = new ArrayList<int[]>();
+        gotos.add(newState());
+        found.add(NONE);
+
+        for (int i = 0; i < patterns.size(); i++) {
+            String pattern = patterns.get(i);
+            if (pattern.isEmpty()) {
+                throw new IllegalArgumentException("Patterns cannot be empty");
+            }
+
+            int state = 0;
+            for (int j = 0; j < pattern.length(); j++) {
+                int c = fold(pattern.charAt(j));
+                if (c < 0) {
+                    throw new IllegalArgumentException("Patterns must be ASCII: " + pattern);
+                }
+                if (gotos.get(state)[c] == -1) {
+                    gotos.get(state)[c] = gotos.size();
+                    gotos.add(newState());
+                    found.add(NONE);
+                }
+                state = gotos.get(state)[c];
+            }
+            found.set(state, append(found.get(state), i));
+        }
+
+        int[][] transitions = gotos.toArray(new int[gotos.size()][]);
+        int[][] outputs = found.toArray(new int[found.size()][]);
+        int[] failure = new int[transitions.length];
+
+        // Turn the trie into a complete automaton, breadth first
+        Queue<Integer> queue = new LinkedList<Integer>();
+        for (int c = 0; c < ALPHABET; c++) {
+            int next = transitions[0][c];
+            if (next == -1) {
+                transitions[0][c] = 0;
+            } else {
+                failure[next] = 0;
+                queue.add(next);
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            int state = queue.poll();
+            outputs[state] = concat(outputs[state], outputs[failure[state]]);
+
+            for (int c = 0; c < ALPHABET; c++) {
+                int next = transitions[state][c];
+                if (next == -1) {
+                    transitions[state][c] = transitions[failure[state]][c];
+                } else {
+                    failure[next] = transitions[failure[state]][c];
+                    queue.add(next);
+                }
+            }
+        }
+
+        this.transitions = transitions;
+        this.outputs = outputs;
+    }
+
+    /**
+     * Get the number of patterns.
+     *
+     * @return the number of patterns
+     */
+    public int getPatternCount() {
+        return patternCount;
+    }
+
+    /**
+     * Create a scanner for one stream of text.
+     *
+     * @param listener the listener to call for every match
+     * @return the scanner
+     */
+    public Scanner newScanner(@NonNull Listener listener) {
+        return new Scanner(listener);
+    }
+
+    private static int[] newState() {
+        int[] state = new int[ALPHABET];
+        Arrays.fill(state, -1);
+        return state;
+    }
+
+    private static int fold(int c) {
+        if (c >= 'A' && c <= 'Z') {
+            return c + ('a' - 'A');
+        } else if (c >= 0 && c < ALPHABET) {
+            return c;
+        } else {
+            return -1;
+        }
+    }
+
+    private static int[] append(int[] array, int value) {
+        int[] result = Arrays.copyOf(array, array.length + 1);
+        result[array.length] = value;
+        return result;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        if (b.length == 0) {
+            return a;
+        }
+        int[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    /**
+     * Called when a pattern is found.
+     */
+    public interface Listener {
+        /**
+         * Called when a pattern is found.
+         *
+         * @param pattern the index of the pattern
+         */
+        void patternFound(int pattern);
+    }
+
+    /**
+     * Keeps the position in the automaton for one stream of text, so that
+     * matches that span several calls are found. Not thread-safe.
+     */
+    public class Scanner {
+        private final Listener listener;
+        private int state;
+
+        private Scanner(Listener listener) {
+            this.listener = listener;
+        }
+
+        /**
+         * Scan some characters.
+         *
+         * @param data the characters
+         * @param off the offset
+         * @param len the number of characters
+         */
+        public void feed(char[] data, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                step(data[i]);
+            }
+        }
+
+        /**
+         * Scan some bytes of ASCII-compatible text.
+         *
+         * @param data the bytes
+         * @param off the offset
+         * @param len the number of bytes
+         */
+        public void feed(byte[] data, int off, int len) {
+            for (int i = off; i < off + len; i++) {
+                step(data[i] & 0xFF);
+            }
+        }
+
+        private void step(int c) {
+            c = fold(c);
+            if (c < 0) {
+                state = 0;
+                return;
+            }
+
+            state = transitions[state][c];
+            int[] matched = outputs[state];
+            for (int pattern : matched) {
+                listener.patternFound(pattern);
+            }
+        }
+    }
+
+}
@@ -5,14 +5,19 @@
  */
 package nz.co.lolnet.james137137;
 
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
 import com.skcraft.launcher.Instance;
 import com.skcraft.launcher.Launcher;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.net.UnknownHostException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static nz.co.lolnet.james137137.MyLogger.log;
@@ -27,7 +32,9 @@ import org.json.simple.parser.ParseException;
  */
 public class MemoryChecker {
 
-    private static JSONObject memoryInfo = null;
+    private static final long CACHE_TTL = 1000L * 60 * 60 * 6;
+    private static final int REFRESH_TIMEOUT = 3000;
+    private static volatile Map<String, MemoryHint> hints = null;
 
     public static int checkMinMemory(int currentAmmount, Instance instance) {
         try {
@@ -74,65 +81,150 @@ public class MemoryChecker {
         }
     }
 
-    public static void getMemoryInfoFromServer() throws ParseException, IOException {
-        if (memoryInfo == null) {
-            String jsonTxt;
-            try {
-                jsonTxt = downloadTextFromUrl(new URL(Launcher.modPackURL + "memory.json"));
-            } catch (UnknownHostException e) {
-                Logger.getLogger(MemoryChecker.class.getName()).log(Level.SEVERE, null, e);
-                return;
+    /**
+     * Make sure memory recommendations are loaded. The local copy is always
+     * used if there is one (it is kept fresh by {@link #refreshIfStale()});
+     * the server is only contacted, with a short timeout, if there is none.
+     */
+    public static void loadMemoryInfo() {
+        if (hints != null) {
+            return;
+        }
+
+        synchronized (MemoryChecker.class) {
+            if (hints == null) {
+                readCache();
             }
+        }
 
-            JSONParser parser = new JSONParser();
-            Object obj = parser.parse(jsonTxt);
-            memoryInfo = (JSONObject) obj;
+        if (hints == null) {
+            refresh();
         }
     }
 
-    public static String downloadTextFromUrl(URL url) throws MalformedURLException, IOException, UnknownHostException {
-        URLConnection con = url.openConnection();
-        InputStream in = con.getInputStream();
-        String encoding = con.getContentEncoding();
-        encoding = encoding == null ? "UTF-8" : encoding;
-        String body = IOUtils.toString(in, encoding);
-        return body;
+    /**
+     * Refresh the local copy of the memory recommendations if it is out of
+     * date. Meant to be called in the background at startup.
+     * </p>
+     * The local copy is read first, and the download is done without
+     * holding a lock, so that a launch in the meantime is not held up.
+     */
+    public static void refreshIfStale() {
+        synchronized (MemoryChecker.class) {
+            if (hints == null) {
+                readCache();
+            }
+        }
+
+        if (isCacheStale()) {
+            refresh();
+        }
     }
 
-    private static int getSuggestedMinAmmount(Instance instance) {
+    private static File getCacheFile() {
+        return new File(Launcher.dataDir, "memory.json");
+    }
+
+    private static boolean isCacheStale() {
+        File file = getCacheFile();
+        return !file.exists() || System.currentTimeMillis() - file.lastModified() > CACHE_TTL;
+    }
+
+    private static void readCache() {
+        File file = getCacheFile();
+        if (!file.exists()) {
+            return;
+        }
         try {
-            int suggestedAmmount = ((Long) ((JSONObject) memoryInfo.get(instance.getTitle())).get("MinMemory")).intValue();
-            return suggestedAmmount;
+            hints = parse(Files.toString(file, Charsets.UTF_8));
         } catch (Exception e) {
+            Logger.getLogger(MemoryChecker.class.getName()).log(Level.WARNING, "Failed to read " + file, e);
         }
-        return -1;
     }
 
-    private static int getSuggestedMaxAmmount(Instance instance) {
+    private static void refresh() {
         try {
-            int suggestedAmmount = ((Long) ((JSONObject) memoryInfo.get(instance.getTitle())).get("MaxMemory")).intValue();
-            return suggestedAmmount;
+            String jsonTxt = downloadTextFromUrl(new URL(Launcher.modPackURL + "memory.json"));
+            Map<String, MemoryHint> parsed = parse(jsonTxt);
+
+            // Only publish and save once the download has succeeded
+            synchronized (MemoryChecker.class) {
+                hints = parsed;
+                File file = getCacheFile();
+                file.getParentFile().mkdirs();
+                Files.write(jsonTxt, file, Charsets.UTF_8);
+            }
         } catch (Exception e) {
+            Logger.getLogger(MemoryChecker.class.getName()).log(Level.WARNING, "Failed to refresh memory recommendations", e);
         }
-        return -1;
     }
 
-    private static int getForcedMaxAmmount(Instance instance) {
-        try {
-            int suggestedAmmount = ((Long) ((JSONObject) memoryInfo.get(instance.getTitle())).get("ForcedMaxMemory")).intValue();
-            return suggestedAmmount;
-        } catch (Exception e) {
+    private static Map<String, MemoryHint> parse(String jsonTxt) throws ParseException {
+        Map<String, MemoryHint> parsed = new HashMap<String, MemoryHint>();
+        JSONObject memoryInfo = (JSONObject) new JSONParser().parse(jsonTxt);
+        for (Object key : memoryInfo.keySet()) {
+            Object value = memoryInfo.get(key);
+            if (value instanceof JSONObject) {
+                JSONObject entry = (JSONObject) value;
+                MemoryHint hint = new MemoryHint();
+                hint.min = getInt(entry, "MinMemory");
+                hint.max = getInt(entry, "MaxMemory");
+                hint.forcedMax = getInt(entry, "ForcedMaxMemory");
+                hint.permGen = getInt(entry, "permGen");
+                parsed.put(String.valueOf(key), hint);
+            }
         }
-        return -1;
+        return parsed;
     }
 
-    private static int getSuggestedGenAmmount(Instance instance) {
+    private static int getInt(JSONObject object, String key) {
+        Object value = object.get(key);
+        return value instanceof Number ? ((Number) value).intValue() : -1;
+    }
+
+    public static String downloadTextFromUrl(URL url) throws MalformedURLException, IOException, UnknownHostException {
+        URLConnection con = url.openConnection();
+        con.setConnectTimeout(REFRESH_TIMEOUT);
+        con.setReadTimeout(REFRESH_TIMEOUT);
+        InputStream in = con.getInputStream();
         try {
-            int suggestedAmmount = ((Long) ((JSONObject) memoryInfo.get(instance.getTitle())).get("permGen")).intValue();
-            return suggestedAmmount;
-        } catch (Exception e) {
+            String encoding = con.getContentEncoding();
+            encoding = encoding == null ? "UTF-8" : encoding;
+            return IOUtils.toString(in, encoding);
+        } finally {
+            in.close();
         }
-        return -1;
+    }
+
+    private static MemoryHint getHint(Instance instance) {
+        Map<String, MemoryHint> hints = MemoryChecker.hints;
+        MemoryHint hint = hints != null ? hints.get(instance.getTitle()) : null;
+        return hint != null ? hint : MemoryHint.NONE;
+    }
+
+    private static int getSuggestedMinAmmount(Instance instance) {
+        return getHint(instance).min;
+    }
+
+    private static int getSuggestedMaxAmmount(Instance instance) {
+        return getHint(instance).max;
+    }
+
+    private static int getForcedMaxAmmount(Instance instance) {
+        return getHint(instance).forcedMax;
+    }
+
+    private static int getSuggestedGenAmmount(Instance instance) {
+        return getHint(instance).permGen;
+    }
+
+    private static class MemoryHint {
+        private static final MemoryHint NONE = new MemoryHint();
+
+        private int min = -1;
+        private int max = -1;
+        private int forcedMax = -1;
+        private int permGen = -1;
     }
 
 }
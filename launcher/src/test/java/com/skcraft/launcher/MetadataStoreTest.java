@@ -0,0 +1,84 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher;
+
+import com.skcraft.launcher.install.InstallLog;
+import com.skcraft.launcher.persistence.Persistence;
+import com.skcraft.launcher.persistence.RecordStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class MetadataStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testDisableAndEnableAgain() throws IOException {
+        File dbFile = new File(folder.getRoot(), "metadata.db");
+        File dir = folder.newFolder("pack");
+        Instance original = new Instance();
+        original.setTitle("Pack");
+        Persistence.write(new File(dir, "instance.json"), original);
+        Persistence.write(new File(dir, "install_log.json"), createLog("mods/a.jar"));
+
+        // Enabling the store imports the JSON files, and later changes only go to the store
+        MetadataStore metadata = MetadataStore.open(dbFile, true);
+        Instance instance = load(metadata, dir);
+        assertTrue(metadata.readInstallLog(instance).hasGroup("mods/a.jar"));
+        metadata.writeInstallLog(instance, createLog("mods/b.jar"));
+        metadata.close();
+
+        // Disabling it moves the latest state back to the JSON files and removes the store
+        metadata = MetadataStore.open(dbFile, false);
+        instance = load(metadata, dir);
+        InstallLog installLog = metadata.readInstallLog(instance);
+        assertFalse(installLog.hasGroup("mods/a.jar"));
+        assertTrue(installLog.hasGroup("mods/b.jar"));
+        assertFalse(dbFile.exists());
+        metadata.writeInstallLog(instance, createLog("mods/c.jar"));
+        metadata.close();
+
+        // Enabling it again imports the changes made while it was disabled
+        metadata = MetadataStore.open(dbFile, true);
+        instance = load(metadata, dir);
+        installLog = metadata.readInstallLog(instance);
+        assertFalse(installLog.hasGroup("mods/b.jar"));
+        assertTrue(installLog.hasGroup("mods/c.jar"));
+        metadata.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testStoreInUse() throws IOException {
+        File dbFile = new File(folder.getRoot(), "metadata.db");
+        RecordStore store = new RecordStore(dbFile);
+        try {
+            MetadataStore.open(dbFile, true);
+        } finally {
+            store.close();
+        }
+    }
+
+    private static Instance load(MetadataStore metadata, File dir) {
+        Instance instance = metadata.loadInstance(dir);
+        instance.setDir(dir);
+        return instance;
+    }
+
+    private static InstallLog createLog(String path) {
+        InstallLog installLog = new InstallLog();
+        installLog.add(path, path);
+        return installLog;
+    }
+
+}
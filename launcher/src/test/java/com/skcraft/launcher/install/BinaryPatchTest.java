@@ -0,0 +1,104 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+public class BinaryPatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testApply() throws IOException {
+        byte[] oldData = "hello world".getBytes(Charsets.UTF_8);
+
+        // Keep "hello " from the old file, then add "there" from the extra block
+        byte[] ctrl = compress(concat(offset(6), offset(5), offset(5)));
+        byte[] diff = compress(new byte[6]);
+        byte[] extra = compress("there".getBytes(Charsets.UTF_8));
+        byte[] patch = concat(header(ctrl.length, diff.length, 11), ctrl, diff, extra);
+
+        assertEquals("hello there", new String(apply(oldData, patch), Charsets.UTF_8));
+    }
+
+    @Test(expected = IOException.class)
+    public void testOverflowingLengths() throws IOException {
+        // The lengths add up to a small negative number if the sum overflows
+        apply(new byte[0], concat(header(Long.MAX_VALUE, Long.MAX_VALUE, 0), new byte[16]));
+    }
+
+    @Test(expected = IOException.class)
+    public void testBlockPastEnd() throws IOException {
+        apply(new byte[0], concat(header(8, 9, 0), new byte[16]));
+    }
+
+    @Test(expected = IOException.class)
+    public void testNewSizeTooLarge() throws IOException {
+        apply(new byte[0], concat(header(0, 0, Integer.MAX_VALUE), new byte[16]));
+    }
+
+    @Test(expected = IOException.class)
+    public void testDamagedBlock() throws IOException {
+        byte[] garbage = "BZh9 not really bzip2".getBytes(Charsets.UTF_8);
+        apply(new byte[0], concat(header(garbage.length, 0, 1), garbage));
+    }
+
+    private byte[] apply(byte[] oldData, byte[] patch) throws IOException {
+        File oldFile = folder.newFile();
+        File patchFile = folder.newFile();
+        File newFile = folder.newFile();
+        Files.write(oldData, oldFile);
+        Files.write(patch, patchFile);
+        BinaryPatch.apply(oldFile, patchFile, newFile);
+        return Files.toByteArray(newFile);
+    }
+
+    private static byte[] header(long ctrlLength, long diffLength, long newSize) {
+        return concat("BSDIFF40".getBytes(Charsets.US_ASCII), offset(ctrlLength), offset(diffLength), offset(newSize));
+    }
+
+    private static byte[] offset(long value) {
+        byte[] buf = new byte[8];
+        long y = Math.abs(value);
+        for (int i = 0; i < 8; i++) {
+            buf[i] = (byte) (y >>> (i * 8));
+        }
+        if (value < 0) {
+            buf[7] |= 0x80;
+        }
+        return buf;
+    }
+
+    private static byte[] compress(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BZip2CompressorOutputStream bzip = new BZip2CompressorOutputStream(out);
+        bzip.write(data);
+        bzip.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+
+}
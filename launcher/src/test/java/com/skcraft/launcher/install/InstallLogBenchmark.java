@@ -0,0 +1,106 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.install;
+
+import java.util.*;
+
+/**
+ * Measures the heap taken by an {@link InstallLog} of a large instance,
+ * next to the same entries kept as a map of groups to sets of strings, which
+ * is how the install log used to store them.
+ * </p>
+ * Run with <code>old</code> or <code>new</code> as the argument, in a fresh
+ * JVM each time, with the test classes and the launcher on the class path.
+ * Every entry is passed as new strings, as it is when files are relativized
+ * during an update.
+ */
+public final class InstallLogBenchmark {
+
+    private static final int ENTRY_COUNT = 20000;
+    private static final String[] DIRS = {
+            "mods/", "config/", "config/forge/", "config/jei/", "scripts/",
+            "resources/textures/blocks/", "libraries/net/minecraftforge/forge/" };
+
+    private InstallLogBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 1 || !(args[0].equals("old") || args[0].equals("new"))) {
+            System.err.println("Usage: InstallLogBenchmark old|new");
+            System.exit(1);
+            return;
+        }
+
+        boolean old = args[0].equals("old");
+        List<String> paths = createPaths();
+
+        long before = getUsedMemory();
+        long after;
+        int groupCount;
+        if (old) {
+            StringInstallLog log = new StringInstallLog();
+            for (String path : paths) {
+                log.add(new String(path), new String(path));
+            }
+            after = getUsedMemory();
+            groupCount = log.entries.size();
+        } else {
+            InstallLog log = new InstallLog();
+            for (String path : paths) {
+                log.add(new String(path), new String(path));
+            }
+            after = getUsedMemory();
+            groupCount = log.getEntries().size();
+        }
+
+        System.out.println(args[0] + ": " + (after - before) / 1024 + " KB for "
+                + paths.size() + " entries in " + groupCount + " groups");
+    }
+
+    private static List<String> createPaths() {
+        List<String> paths = new ArrayList<String>();
+        Random random = new Random(1);
+        for (int i = 0; i < ENTRY_COUNT; i++) {
+            paths.add(DIRS[random.nextInt(DIRS.length)] + "sub" + (i % 50) + "/file-"
+                    + Long.toHexString(random.nextLong()).substring(0, 10) + "-" + i + ".dat");
+        }
+        return paths;
+    }
+
+    private static long getUsedMemory() {
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * The entries of an install log as a map of groups to sets of strings,
+     * with a set of every entry for lookups.
+     */
+    private static class StringInstallLog {
+        private final Map<String, Set<String>> entries = new HashMap<String, Set<String>>();
+        private final Set<String> cache = new HashSet<String>();
+
+        public void add(String group, String entry) {
+            cache.add(entry);
+            Set<String> subEntries = entries.get(group);
+            if (subEntries == null) {
+                subEntries = new HashSet<String>();
+                entries.put(group, subEntries);
+            }
+            subEntries.add(entry);
+        }
+    }
+
+}
@@ -0,0 +1,63 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.persistence;
+
+import lombok.Getter;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PersistenceTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testCommitAndForgetWritesSnapshot() {
+        File file = new File(folder.getRoot(), "test.json");
+        TestObject object = Persistence.load(file, TestObject.class);
+
+        object.getValues().add("first");
+        Persistence.commitAndForget(object);
+
+        // Changes after the call are not part of the save
+        object.getValues().add("second");
+        Persistence.flush();
+
+        assertEquals(1, Persistence.read(file, TestObject.class).getValues().size());
+    }
+
+    @Test
+    public void testCommitAndForgetCoalesces() {
+        File file = new File(folder.getRoot(), "test.json");
+        TestObject object = Persistence.load(file, TestObject.class);
+
+        for (int i = 0; i < 10; i++) {
+            object.getValues().add("value" + i);
+            Persistence.commitAndForget(object);
+        }
+        assertFalse(file.exists());
+
+        Persistence.flush();
+        assertEquals(object.getValues(), Persistence.read(file, TestObject.class).getValues());
+    }
+
+    /**
+     * Not @Data, because bound objects are looked up by their hash code,
+     * which would change with every value added.
+     */
+    public static class TestObject {
+        @Getter private List<String> values = new ArrayList<String>();
+    }
+
+}
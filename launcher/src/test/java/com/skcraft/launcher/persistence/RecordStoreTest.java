@@ -0,0 +1,165 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.persistence;
+
+import com.google.common.base.Charsets;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class RecordStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testReopen() throws IOException {
+        File file = new File(folder.getRoot(), "test.db");
+
+        RecordStore store = new RecordStore(file);
+        store.put("a", bytes("first"));
+        store.put("b", bytes("second"));
+        store.put("a", bytes("replaced"));
+        store.remove("b");
+        store.close();
+
+        store = new RecordStore(file);
+        try {
+            assertArrayEquals(bytes("replaced"), store.get("a"));
+            assertNull(store.get("b"));
+            assertEquals(Arrays.asList("a"), store.keys(""));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testTruncatesRecordCutShort() throws IOException {
+        File file = new File(folder.getRoot(), "test.db");
+
+        RecordStore store = new RecordStore(file);
+        store.put("a", bytes("kept"));
+        store.close();
+        long complete = file.length();
+
+        store = new RecordStore(file);
+        store.put("b", bytes("cut short"));
+        store.close();
+
+        // Cut the last record in the middle of its value, as a crash during the write would
+        truncate(file, file.length() - 6);
+
+        store = new RecordStore(file);
+        try {
+            assertEquals(complete, file.length());
+            assertArrayEquals(bytes("kept"), store.get("a"));
+            assertFalse(store.contains("b"));
+
+            // New records go where the damaged record was
+            store.put("c", bytes("after"));
+        } finally {
+            store.close();
+        }
+
+        store = new RecordStore(file);
+        try {
+            assertEquals(Arrays.asList("a", "c"), store.keys(""));
+            assertArrayEquals(bytes("after"), store.get("c"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testKeepsRecordsBeforeCutInBatch() throws IOException {
+        File file = new File(folder.getRoot(), "test.db");
+
+        Map<String, byte[]> records = new LinkedHashMap<String, byte[]>();
+        records.put("first", bytes("1"));
+        records.put("second", bytes("2"));
+        RecordStore store = new RecordStore(file);
+        store.putAll(records);
+        store.close();
+
+        // Cut into the checksum of the second record
+        truncate(file, file.length() - 2);
+
+        store = new RecordStore(file);
+        try {
+            assertArrayEquals(bytes("1"), store.get("first"));
+            assertFalse(store.contains("second"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testTruncatesDamagedRecord() throws IOException {
+        File file = new File(folder.getRoot(), "test.db");
+
+        RecordStore store = new RecordStore(file);
+        store.put("a", bytes("kept"));
+        long complete = file.length();
+        store.put("b", bytes("damaged"));
+        store.close();
+
+        // Flip a byte of the last value so that its checksum no longer matches
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(raf.length() - 6);
+            int b = raf.read();
+            raf.seek(raf.length() - 6);
+            raf.write(b ^ 0xFF);
+        } finally {
+            raf.close();
+        }
+
+        store = new RecordStore(file);
+        try {
+            assertEquals(complete, file.length());
+            assertTrue(store.contains("a"));
+            assertFalse(store.contains("b"));
+        } finally {
+            store.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testLocked() throws IOException {
+        File file = new File(folder.getRoot(), "test.db");
+
+        RecordStore store = new RecordStore(file);
+        try {
+            new RecordStore(file);
+        } finally {
+            store.close();
+        }
+    }
+
+    private static void truncate(File file, long length) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(length);
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(Charsets.UTF_8);
+    }
+
+}
@@ -0,0 +1,58 @@
+/*
+ * SK's Minecraft Launcher
+ * Copyright (C) 2010-2014 Albert Pham <http://www.sk89q.com> and contributors
+ * Please see LICENSE.txt for license information.
+ */
+
+package com.skcraft.launcher.swing;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LogModelTest {
+
+    @Test
+    public void testLineContinuedOverCalls() {
+        LogModel model = new LogModel(10);
+        model.append("[12:00:00] [main/", null);
+        assertEquals("[12:00:00] [main/", model.getLine(0));
+
+        model.append("WARN]: low memory", null);
+        assertEquals("[12:00:00] [main/WARN]: low memory", model.getLine(0));
+
+        model.append("\r\nnext", null);
+        assertEquals(2, model.getLineCount());
+        assertEquals("[12:00:00] [main/WARN]: low memory", model.getLine(0));
+        assertEquals(LogLevel.WARN, model.getLevel(0));
+        assertEquals("next", model.getLine(1));
+    }
+
+    @Test
+    public void testContinuationKeepsLevel() {
+        LogModel model = new LogModel(10);
+        model.append("[main/ERROR]: failed\n", null);
+        model.append("java.io.IOException: ", null);
+        model.append("broken\n", null);
+        assertEquals(LogLevel.ERROR, model.getLevel(1));
+    }
+
+    @Test
+    public void testRingWithOpenLine() {
+        LogModel model = new LogModel(2);
+        model.append("a\nb\nc", null);
+        model.append("d\n", null);
+        assertEquals(1, model.getFirstLine());
+        assertArrayEquals(new String[] { "b", "cd" }, model.getLines(0, 3));
+    }
+
+    @Test
+    public void testClearEndsOpenLine() {
+        LogModel model = new LogModel(10);
+        model.append("open", null);
+        model.clear();
+        model.append("new\n", null);
+        assertEquals("new", model.getLine(0));
+    }
+
+}